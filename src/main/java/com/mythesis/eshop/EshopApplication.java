@@ -9,7 +9,6 @@ import com.mythesis.eshop.model.entity.User;
 import com.mythesis.eshop.model.service.CartItemService;
 import com.mythesis.eshop.model.service.CartService;
 import com.mythesis.eshop.model.service.OrderService;
-import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +16,7 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
@@ -27,14 +27,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @SpringBootApplication
+@EnableScheduling
 
 public class EshopApplication {
 
 	private static final Logger log = LoggerFactory.getLogger(EshopApplication.class);
 
-	@Autowired
-	private CartItemService cartItemService;
-
 
 
 
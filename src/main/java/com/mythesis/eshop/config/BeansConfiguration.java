@@ -1,25 +1,31 @@
 package com.mythesis.eshop.config;
 
 
-import org.modelmapper.ModelMapper;
+import com.mythesis.eshop.security.BoundedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+
 @Configuration
 public class BeansConfiguration {
 
     @Bean
-    public ModelMapper modelMapper(){
-        ModelMapper modelMapper = new ModelMapper();
-        modelMapper.getConfiguration().setSkipNullEnabled(true);
-        return modelMapper;
+    public PasswordEncoder passwordEncoder(
+            @Value("${eshop.password-hashing.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+            @Value("${eshop.password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${eshop.password-hashing.max-wait:PT2S}") Duration maxWait){
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), threads, queueCapacity, maxWait);
     }
 
+    /* Duplicate cart items are merged before ddl-auto adds the unique constraint that forbids them. */
     @Bean
-    public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    public static EntityManagerFactoryDependsOnPostProcessor mergeCartItemsBeforeSchemaUpdate(){
+        return new EntityManagerFactoryDependsOnPostProcessor(CartItemDuplicateMerger.class);
     }
 
 }
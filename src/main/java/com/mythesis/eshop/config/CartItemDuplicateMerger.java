@@ -0,0 +1,72 @@
+package com.mythesis.eshop.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * Databases from before uk_cart_item_cart_product can hold several rows for one (cart, product), and
+ * ddl-auto=update cannot add the constraint while they exist. Before the schema update runs (see
+ * BeansConfiguration), each such group is merged into its oldest row, which takes the summed quantity.
+ * The affected carts lose their item_count so CartService sums their totals up again once the application is ready.
+ */
+@Component
+public class CartItemDuplicateMerger {
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CartItemDuplicateMerger(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PostConstruct
+    public int mergeDuplicates() {
+        if (!hasColumn("e_cart_item", "cart_id"))
+            return 0;
+
+        List<Object[]> duplicates = jdbcTemplate.query(
+                "SELECT MIN(id), SUM(quantity), cart_id, product_id FROM e_cart_item " +
+                        "GROUP BY cart_id, product_id HAVING COUNT(*) > 1",
+                (rs, row) -> new Object[]{rs.getLong(1), rs.getInt(2), rs.getLong(3), rs.getLong(4)});
+        if (duplicates.isEmpty())
+            return 0;
+
+        jdbcTemplate.batchUpdate("UPDATE e_cart_item SET quantity = ? WHERE id = ?",
+                duplicates.stream().map(d -> new Object[]{d[1], d[0]}).collect(Collectors.toList()));
+        jdbcTemplate.batchUpdate("DELETE FROM e_cart_item WHERE cart_id = ? AND product_id = ? AND id <> ?",
+                duplicates.stream().map(d -> new Object[]{d[2], d[3], d[0]}).collect(Collectors.toList()));
+        if (hasColumn("e_cart", "item_count"))
+            jdbcTemplate.batchUpdate("UPDATE e_cart SET item_count = NULL WHERE id = ?",
+                    duplicates.stream().map(d -> new Object[]{d[2]}).distinct().collect(Collectors.toList()));
+        return duplicates.size();
+    }
+
+    /* Unquoted names are stored lower case by MySQL and upper case by H2. */
+    private boolean hasColumn(String table, String column) {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String[] names : new String[][]{{table, column}, {table.toUpperCase(), column.toUpperCase()}}) {
+                try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, names[0], names[1])) {
+                    if (columns.next())
+                        return true;
+                }
+            }
+            return false;
+        } catch (SQLException ex) {
+            throw new DataAccessResourceFailureException("Could not read the schema", ex);
+        }
+    }
+}
@@ -2,13 +2,21 @@ package com.mythesis.eshop.controller;
 
 import com.mythesis.eshop.dto.CartEntryDTO;
 import com.mythesis.eshop.dto.CartInfoDTO;
+import com.mythesis.eshop.dto.CartItemOperationDTO;
+import com.mythesis.eshop.dto.CartViewDTO;
+import com.mythesis.eshop.dto.CheckoutStatusDTO;
+import com.mythesis.eshop.dto.OrderInfoDTO;
 import com.mythesis.eshop.model.entity.Cart;
+import com.mythesis.eshop.model.service.AsyncCheckoutService;
 import com.mythesis.eshop.model.service.CartItemService;
 import com.mythesis.eshop.model.service.CartService;
+import com.mythesis.eshop.model.service.CheckoutService;
 import com.mythesis.eshop.util.CartMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,14 +24,24 @@ import java.util.stream.Collectors;
 @RequestMapping(path = "/carts")
 public class CartController {
 
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final CartService cartService;
     private final CartItemService cartItemService;
+    private final CheckoutService checkoutService;
+    private final AsyncCheckoutService asyncCheckoutService;
     private final CartMapper cartMapper;
 
     @Autowired
-    public CartController(CartService cartService, CartItemService cartItemService, CartMapper cartMapper) {
+    public CartController(CartService cartService,
+                          CartItemService cartItemService,
+                          CheckoutService checkoutService,
+                          AsyncCheckoutService asyncCheckoutService,
+                          CartMapper cartMapper) {
         this.cartService = cartService;
         this.cartItemService = cartItemService;
+        this.checkoutService = checkoutService;
+        this.asyncCheckoutService = asyncCheckoutService;
         this.cartMapper = cartMapper;
     }
 
@@ -32,11 +50,43 @@ public class CartController {
         return cartMapper.toCartInfoDto(cartService.retrieveById(cartId));
     }
 
+    /* Everything a cart page shows, items and product summaries included, in one response. */
+    @GetMapping("/{cartId}/view")
+    public CartViewDTO getCartView(@PathVariable("cartId") Long cartId){
+        return cartMapper.toCartViewDto(cartService.retrieveViewById(cartId));
+    }
+
+    /* Adds, updates and removes several items in one request and transaction; answers with the resulting cart. */
+    @PostMapping("/{cartId}/items")
+    public CartViewDTO applyItemOperations(@PathVariable("cartId") Long cartId,
+                                           @RequestBody List<CartItemOperationDTO> operations){
+        cartItemService.applyOperations(cartId, operations);
+        return cartMapper.toCartViewDto(cartService.retrieveViewById(cartId));
+    }
+
+    /* Kept for existing clients. A GET that places orders gets repeated by retries and prefetches; use the POST below. */
+    @Deprecated
     @GetMapping("/{cartId}/purchase")
     public Boolean purchaseAllInCartItems(@PathVariable("cartId") Long cartId){
         return cartItemService.purchaseAllInCartItems(cartId);
     }
 
+    @PostMapping("/{cartId}/purchase")
+    public OrderInfoDTO purchase(@PathVariable("cartId") Long cartId,
+                                 @RequestHeader(IDEMPOTENCY_KEY) String idempotencyKey){
+        return checkoutService.purchase(cartId, idempotencyKey);
+    }
+
+    /* Queued variant of purchase: answers 202 at once, progress is polled at the Location. */
+    @PostMapping("/{cartId}/checkouts")
+    public ResponseEntity<CheckoutStatusDTO> submitCheckout(@PathVariable("cartId") Long cartId,
+                                                            @RequestHeader(IDEMPOTENCY_KEY) String idempotencyKey){
+        CheckoutStatusDTO status = asyncCheckoutService.submit(cartId, idempotencyKey);
+        return ResponseEntity.accepted()
+                .location(URI.create("/checkouts/" + status.getId()))
+                .body(status);
+    }
+
     @GetMapping
     public List<CartInfoDTO> getCarts(){
         return cartService.retrieveAll()
@@ -0,0 +1,23 @@
+package com.mythesis.eshop.controller;
+
+import com.mythesis.eshop.dto.CheckoutStatusDTO;
+import com.mythesis.eshop.model.service.AsyncCheckoutService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping(path = "/checkouts")
+public class CheckoutController {
+
+    private final AsyncCheckoutService asyncCheckoutService;
+
+    @Autowired
+    public CheckoutController(AsyncCheckoutService asyncCheckoutService) {
+        this.asyncCheckoutService = asyncCheckoutService;
+    }
+
+    @GetMapping("/{checkoutId}")
+    public CheckoutStatusDTO getCheckout(@PathVariable("checkoutId") String checkoutId){
+        return asyncCheckoutService.retrieveStatus(checkoutId);
+    }
+}
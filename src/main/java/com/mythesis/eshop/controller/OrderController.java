@@ -2,6 +2,7 @@ package com.mythesis.eshop.controller;
 
 import com.mythesis.eshop.dto.OrderEntryDTO;
 import com.mythesis.eshop.dto.OrderInfoDTO;
+import com.mythesis.eshop.dto.OrderStatsDTO;
 import com.mythesis.eshop.model.entity.Order;
 import com.mythesis.eshop.model.service.OrderService;
 import com.mythesis.eshop.util.OrderMapper;
@@ -36,8 +37,8 @@ public class OrderController {
     }
 
     @GetMapping(path = "/stats")
-    public void getStats(){
-       orderService.stats();
+    public OrderStatsDTO getStats(@RequestParam(name = "days", defaultValue = "30") Integer days){
+        return orderService.stats(days);
     }
 
     @PostMapping
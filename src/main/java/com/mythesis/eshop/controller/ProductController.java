@@ -1,13 +1,25 @@
 package com.mythesis.eshop.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mythesis.eshop.dto.ProductEntryDTO;
+import com.mythesis.eshop.dto.ProductFacetsDTO;
+import com.mythesis.eshop.dto.ProductImportResultDTO;
 import com.mythesis.eshop.dto.ProductInfoDTO;
 import com.mythesis.eshop.model.entity.Product;
+import com.mythesis.eshop.model.importer.ProductImportReader;
 import com.mythesis.eshop.model.service.ProductService;
 import com.mythesis.eshop.util.ProductMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -15,28 +27,74 @@ import java.util.stream.Collectors;
 @RequestMapping(path = "/products")
 public class ProductController {
 
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_SEARCH_RESULTS = 20;
 
     private final ProductService productService;
     private final ProductMapper productMapper;
+    private final ObjectMapper objectMapper;
+    private final ProductImportReader importReader;
 
     @Autowired
-    public ProductController(ProductService productService, ProductMapper productMapper) {
+    public ProductController(ProductService productService,
+                             ProductMapper productMapper,
+                             ObjectMapper objectMapper) {
         this.productService = productService;
         this.productMapper = productMapper;
+        this.objectMapper = objectMapper;
+        this.importReader = new ProductImportReader(objectMapper);
     }
 
     @GetMapping(path = "/{productId}")
     public ProductInfoDTO getProduct(@PathVariable("productId") Long productId){
-        return productMapper.toProductInfoDto(productService.retrieveById(productId));
+        return productMapper.toProductInfoDto(productService.retrieveViewById(productId));
     }
 
+    /* Without paging or filter parameters the whole catalog is returned, otherwise a keyset page ordered by id. */
     @GetMapping
-    public List<ProductInfoDTO> getProducts(){
+    public List<ProductInfoDTO> getProducts(@RequestParam(name = "after", required = false) Long after,
+                                            @RequestParam(name = "limit", required = false) Integer limit,
+                                            @RequestParam(name = "category", required = false) Long category,
+                                            @RequestParam(name = "minPrice", required = false) Double minPrice,
+                                            @RequestParam(name = "maxPrice", required = false) Double maxPrice){
 
-        return productService.retrieveAll()
-                .stream()
-                .map(productMapper::toProductInfoDto)
-                .collect(Collectors.toList());
+        boolean filtered = category != null || minPrice != null || maxPrice != null;
+        if (after == null && limit == null && !filtered)
+            return productService.retrieveAllInfo();
+
+        Long afterId = after == null ? 0L : after;
+        Integer pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (!filtered)
+            return productService.retrieveInfoAfter(afterId, pageSize);
+
+        return productService.retrieveInfoMatching(category, minPrice, maxPrice, afterId, pageSize);
+    }
+
+    @GetMapping(path = "/facets")
+    public ProductFacetsDTO getProductFacets(@RequestParam(name = "category", required = false) Long category,
+                                             @RequestParam(name = "minPrice", required = false) Double minPrice,
+                                             @RequestParam(name = "maxPrice", required = false) Double maxPrice){
+        return productService.retrieveFacets(category, minPrice, maxPrice);
+    }
+
+    /* One JSON document per line, written while the result set is scrolled. */
+    @GetMapping(path = "/stream", produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamProducts(){
+
+        StreamingResponseBody body = outputStream -> productService.streamAllInfo(
+                product -> writeLine(outputStream, product)
+        );
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON))
+                .body(body);
+    }
+
+    @GetMapping(path = "/search")
+    public List<ProductInfoDTO> searchProducts(@RequestParam(name = "q") String query,
+                                               @RequestParam(name = "limit", defaultValue = "" + DEFAULT_SEARCH_RESULTS) Integer limit){
+        return productService.search(query, limit);
     }
 
     @GetMapping(path = "/orderedAndInCartByUser/{userId}")
@@ -54,6 +112,13 @@ public class ProductController {
         return productMapper.toProductInfoDto(savedPro);
     }
 
+    /* The body is read line by line while earlier chunks are already being inserted. */
+    @PostMapping(path = "/import", consumes = { ProductImportReader.TEXT_CSV, ProductImportReader.APPLICATION_NDJSON })
+    public ProductImportResultDTO importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                 InputStream body) throws IOException {
+        return productService.importProducts(importReader.read(body, contentType));
+    }
+
     @PutMapping(path = "/{productId}")
     public ProductInfoDTO updateProduct(@PathVariable("productId") Long productId,
                                  @RequestBody ProductEntryDTO product){
@@ -67,4 +132,13 @@ public class ProductController {
     public void deleteProduct(@PathVariable("productId") Long productId){
         productService.delete(productId);
     }
+
+    private void writeLine(OutputStream outputStream, ProductInfoDTO product){
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(product));
+            outputStream.write('\n');
+        } catch (IOException ex){
+            throw new UncheckedIOException(ex);
+        }
+    }
 }
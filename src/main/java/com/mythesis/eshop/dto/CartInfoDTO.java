@@ -4,6 +4,7 @@ public class CartInfoDTO {
     private Long id;
     private Long userId;
     private Double total;
+    private Integer itemCount;
 
     public Long getId() {
         return id;
@@ -28,4 +29,12 @@ public class CartInfoDTO {
     public void setTotal(Double total) {
         this.total = total;
     }
+
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
 }
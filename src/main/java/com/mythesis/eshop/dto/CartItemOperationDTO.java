@@ -0,0 +1,47 @@
+package com.mythesis.eshop.dto;
+
+public class CartItemOperationDTO {
+
+    public enum Type {
+        ADD,
+        UPDATE,
+        REMOVE
+    }
+
+    private Type type;
+    private Long cartItemId;
+    private Long productId;
+    private Integer quantity;
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getCartItemId() {
+        return cartItemId;
+    }
+
+    public void setCartItemId(Long cartItemId) {
+        this.cartItemId = cartItemId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
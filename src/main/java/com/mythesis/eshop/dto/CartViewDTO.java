@@ -0,0 +1,52 @@
+package com.mythesis.eshop.dto;
+
+import java.util.List;
+
+public class CartViewDTO {
+
+    private Long id;
+    private Long userId;
+    private Double total;
+    private Integer itemCount;
+    private List<CartViewItemDTO> items;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Double getTotal() {
+        return total;
+    }
+
+    public void setTotal(Double total) {
+        this.total = total;
+    }
+
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public List<CartViewItemDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<CartViewItemDTO> items) {
+        this.items = items;
+    }
+}
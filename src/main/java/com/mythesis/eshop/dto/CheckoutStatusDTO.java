@@ -0,0 +1,86 @@
+package com.mythesis.eshop.dto;
+
+import com.mythesis.eshop.model.service.CheckoutStage;
+
+public class CheckoutStatusDTO {
+
+    public enum State {
+        QUEUED,
+        PROCESSING,
+        COMPLETED,
+        FAILED
+    }
+
+    private String id;
+    private Long cartId;
+    private State state;
+    private CheckoutStage stage;
+    private Integer attempts;
+    private Long orderId;
+    private Double total;
+    private String error;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    public void setCartId(Long cartId) {
+        this.cartId = cartId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public CheckoutStage getStage() {
+        return stage;
+    }
+
+    public void setStage(CheckoutStage stage) {
+        this.stage = stage;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public Double getTotal() {
+        return total;
+    }
+
+    public void setTotal(Double total) {
+        this.total = total;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
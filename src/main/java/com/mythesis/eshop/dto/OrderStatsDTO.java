@@ -0,0 +1,44 @@
+package com.mythesis.eshop.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public class OrderStatsDTO {
+
+    private Long orderCount;
+    private Double revenue;
+    private Double averageBasketSize;
+    private Map<LocalDate, Long> ordersPerDay;
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public Double getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(Double revenue) {
+        this.revenue = revenue;
+    }
+
+    public Double getAverageBasketSize() {
+        return averageBasketSize;
+    }
+
+    public void setAverageBasketSize(Double averageBasketSize) {
+        this.averageBasketSize = averageBasketSize;
+    }
+
+    public Map<LocalDate, Long> getOrdersPerDay() {
+        return ordersPerDay;
+    }
+
+    public void setOrdersPerDay(Map<LocalDate, Long> ordersPerDay) {
+        this.ordersPerDay = ordersPerDay;
+    }
+}
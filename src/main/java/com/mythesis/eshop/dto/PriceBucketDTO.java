@@ -0,0 +1,41 @@
+package com.mythesis.eshop.dto;
+
+public class PriceBucketDTO {
+
+    private Double from;
+    private Double to;
+    private Long count;
+
+    public PriceBucketDTO() {
+    }
+
+    public PriceBucketDTO(Double from, Double to, Long count) {
+        this.from = from;
+        this.to = to;
+        this.count = count;
+    }
+
+    public Double getFrom() {
+        return from;
+    }
+
+    public void setFrom(Double from) {
+        this.from = from;
+    }
+
+    public Double getTo() {
+        return to;
+    }
+
+    public void setTo(Double to) {
+        this.to = to;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,35 @@
+package com.mythesis.eshop.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class ProductFacetsDTO {
+
+    private Long total;
+    private Map<Long, Long> categories;
+    private List<PriceBucketDTO> priceBuckets;
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+
+    public Map<Long, Long> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Map<Long, Long> categories) {
+        this.categories = categories;
+    }
+
+    public List<PriceBucketDTO> getPriceBuckets() {
+        return priceBuckets;
+    }
+
+    public void setPriceBuckets(List<PriceBucketDTO> priceBuckets) {
+        this.priceBuckets = priceBuckets;
+    }
+}
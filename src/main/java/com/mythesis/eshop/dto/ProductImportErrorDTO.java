@@ -0,0 +1,43 @@
+package com.mythesis.eshop.dto;
+
+import java.util.List;
+
+public class ProductImportErrorDTO {
+
+    private Long line;
+    private String sku;
+    private List<String> messages;
+
+    public ProductImportErrorDTO() {
+    }
+
+    public ProductImportErrorDTO(Long line, String sku, List<String> messages) {
+        this.line = line;
+        this.sku = sku;
+        this.messages = messages;
+    }
+
+    public Long getLine() {
+        return line;
+    }
+
+    public void setLine(Long line) {
+        this.line = line;
+    }
+
+    public String getSku() {
+        return sku;
+    }
+
+    public void setSku(String sku) {
+        this.sku = sku;
+    }
+
+    public List<String> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<String> messages) {
+        this.messages = messages;
+    }
+}
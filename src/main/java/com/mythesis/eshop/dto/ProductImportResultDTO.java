@@ -0,0 +1,35 @@
+package com.mythesis.eshop.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductImportResultDTO {
+
+    private Integer imported = 0;
+    private Integer failed = 0;
+    private List<ProductImportErrorDTO> errors = new ArrayList<>();
+
+    public Integer getImported() {
+        return imported;
+    }
+
+    public void setImported(Integer imported) {
+        this.imported = imported;
+    }
+
+    public Integer getFailed() {
+        return failed;
+    }
+
+    public void setFailed(Integer failed) {
+        this.failed = failed;
+    }
+
+    public List<ProductImportErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<ProductImportErrorDTO> errors) {
+        this.errors = errors;
+    }
+}
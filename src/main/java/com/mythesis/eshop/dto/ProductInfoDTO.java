@@ -9,6 +9,23 @@ public class ProductInfoDTO {
     private String categoryName;
     private Double price;
 
+    public ProductInfoDTO() {
+    }
+
+    public ProductInfoDTO(Long id,
+                          String name,
+                          String description,
+                          String sku,
+                          String categoryName,
+                          Double price) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.sku = sku;
+        this.categoryName = categoryName;
+        this.price = price;
+    }
+
     public Long getId() {
         return id;
     }
@@ -1,5 +1,6 @@
 package com.mythesis.eshop.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -17,6 +18,8 @@ import java.util.stream.Collectors;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    public static final String RETRY_AFTER_SECONDS = "1";
+
     @ExceptionHandler(IllegalArgumentException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public  ResponseEntity<ApiError> handleIllegalArgumentException(IllegalArgumentException ex, WebRequest request) {
@@ -55,6 +58,15 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(ex,apiError,HttpStatus.NOT_FOUND, request);
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public  ResponseEntity<ApiError> handleServiceOverloadedException(ServiceOverloadedException ex, WebRequest request) {
+        ApiError apiError = new ApiError(HttpStatus.SERVICE_UNAVAILABLE.value(), ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(apiError);
+    }
+
 
 
 
@@ -0,0 +1,9 @@
+package com.mythesis.eshop.exception;
+
+/* Thrown when a bounded resource is saturated and the request is turned away instead of queued. */
+public class ServiceOverloadedException extends RuntimeException {
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
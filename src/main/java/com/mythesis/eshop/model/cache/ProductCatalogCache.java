@@ -0,0 +1,48 @@
+package com.mythesis.eshop.model.cache;
+
+import com.mythesis.eshop.util.ExpiringCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+@Component
+public class ProductCatalogCache {
+
+    private ExpiringCache<Long, ProductView> cache;
+
+    @Autowired
+    public ProductCatalogCache(@Value("${eshop.catalog-cache.max-size:10000}") int maxSize,
+                               @Value("${eshop.catalog-cache.ttl:PT10M}") Duration ttl) {
+        this.cache = new ExpiringCache<>("productCatalog", maxSize, ttl);
+    }
+
+    /* On a miss the loader runs outside the cache lock; its result is dropped if an invalidation raced with it. */
+    public ProductView get(Long productId, Function<Long, ProductView> loader) {
+        long generation = cache.generation();
+        ProductView view = cache.get(productId);
+        if (view == null) {
+            view = loader.apply(productId);
+            cache.putIfGeneration(productId, view, generation);
+        }
+        return view;
+    }
+
+    public void invalidate(Long productId) {
+        cache.invalidate(productId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long hitCount() {
+        return cache.hitCount();
+    }
+
+    public long missCount() {
+        return cache.missCount();
+    }
+}
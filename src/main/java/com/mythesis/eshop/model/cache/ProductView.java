@@ -0,0 +1,63 @@
+package com.mythesis.eshop.model.cache;
+
+import com.mythesis.eshop.model.entity.Product;
+
+/* Immutable snapshot of the catalog fields of a product, safe to share between requests. */
+public final class ProductView {
+
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final String sku;
+    private final String categoryName;
+    private final Double price;
+
+    public ProductView(Long id,
+                       String name,
+                       String description,
+                       String sku,
+                       String categoryName,
+                       Double price) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.sku = sku;
+        this.categoryName = categoryName;
+        this.price = price;
+    }
+
+    public static ProductView of(Product product) {
+        return new ProductView(
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getSku(),
+                product.getCategory() == null ? null : product.getCategory().getTitle(),
+                product.getPrice()
+        );
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getSku() {
+        return sku;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+}
@@ -0,0 +1,81 @@
+package com.mythesis.eshop.model.cache;
+
+import com.mythesis.eshop.util.ExpiringCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * Keeps an immutable copy of each UserDetails and hands out a fresh User per call,
+ * because the authentication manager erases the password of the instance it was given.
+ */
+@Component
+public class UserDetailsCache {
+
+    private ExpiringCache<String, CachedUserDetails> cache;
+
+    @Autowired
+    public UserDetailsCache(@Value("${eshop.user-details-cache.max-size:10000}") int maxSize,
+                            @Value("${eshop.user-details-cache.ttl:PT5M}") Duration ttl) {
+        this.cache = new ExpiringCache<>("userDetails", maxSize, ttl);
+    }
+
+    /* Like ProductCatalogCache.get; a loader that throws caches nothing. */
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        long generation = cache.generation();
+        CachedUserDetails cached = cache.get(username);
+        if (cached == null) {
+            cached = new CachedUserDetails(loader.apply(username));
+            cache.putIfGeneration(username, cached, generation);
+        }
+        return cached.toUserDetails();
+    }
+
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long hitCount() {
+        return cache.hitCount();
+    }
+
+    public long missCount() {
+        return cache.missCount();
+    }
+
+    private static final class CachedUserDetails {
+        private final String username;
+        private final String password;
+        private final List<GrantedAuthority> authorities;
+        private final boolean enabled;
+        private final boolean accountNonExpired;
+        private final boolean credentialsNonExpired;
+        private final boolean accountNonLocked;
+
+        private CachedUserDetails(UserDetails userDetails) {
+            this.username = userDetails.getUsername();
+            this.password = userDetails.getPassword();
+            this.authorities = List.copyOf(userDetails.getAuthorities());
+            this.enabled = userDetails.isEnabled();
+            this.accountNonExpired = userDetails.isAccountNonExpired();
+            this.credentialsNonExpired = userDetails.isCredentialsNonExpired();
+            this.accountNonLocked = userDetails.isAccountNonLocked();
+        }
+
+        private UserDetails toUserDetails() {
+            return new User(username, password, enabled, accountNonExpired,
+                    credentialsNonExpired, accountNonLocked, authorities);
+        }
+    }
+}
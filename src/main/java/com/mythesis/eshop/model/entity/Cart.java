@@ -9,14 +9,14 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "e_cart")
+@Table(name = "e_cart", indexes = @Index(name = "idx_cart_updated_at", columnList = "updatedAt"))
 public class Cart {
 
     @Id
     @GeneratedValue
     private Long id;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "userId", referencedColumnName = "id")
     @NotNull(message = "user must not be blank")
     private User user;
@@ -25,9 +25,13 @@ public class Cart {
     private List<CartItem> cartItems;
 
 
+    /* Kept up to date by CartItemService and product price changes, never recomputed on read. */
     @NotNull(message = "total must not be blank")
     private Double total;
 
+    /* Sum of the item quantities. */
+    private Integer itemCount = 0;
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -74,12 +78,20 @@ public class Cart {
         this.total = total;
     }
 
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
     @Override
     public String toString() {
         return "Cart{" +
                 "id=" + id +
-                ", user=" + user +
                 ", total=" + total +
+                ", itemCount=" + itemCount +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
                 '}';
@@ -8,7 +8,8 @@ import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "e_cart_item")
+@Table(name = "e_cart_item",
+        uniqueConstraints = @UniqueConstraint(name = "uk_cart_item_cart_product", columnNames = {"cartId", "productId"}))
 public class CartItem {
 
     @Id
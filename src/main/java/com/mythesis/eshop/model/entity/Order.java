@@ -9,7 +9,7 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(name = "e_order")
+@Table(name = "e_order", indexes = @Index(name = "idx_order_created_at", columnList = "createdAt"))
 public class Order {
 
     @Id
@@ -11,8 +11,10 @@ import java.time.LocalDateTime;
 @Table(name = "e_order_item")
 public class OrderItem {
 
+    /* Own pooled sequence: one round trip hands out ids for 50 items, so an order's items insert as one batch. */
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "e_order_item_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
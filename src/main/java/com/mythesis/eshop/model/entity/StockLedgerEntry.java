@@ -0,0 +1,50 @@
+package com.mythesis.eshop.model.entity;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/* A committed stock decrement of a tracked product that has not been applied to e_product yet. */
+@Entity
+@Table(name = "e_stock_ledger", indexes = @Index(columnList = "productId"))
+public class StockLedgerEntry {
+
+    /* Identity rather than the shared hibernate_sequence row, which every checkout would otherwise queue on. */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    public StockLedgerEntry() {
+    }
+
+    public StockLedgerEntry(Long productId, Integer quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
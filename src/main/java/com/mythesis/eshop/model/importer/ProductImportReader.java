@@ -0,0 +1,181 @@
+package com.mythesis.eshop.model.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mythesis.eshop.dto.ProductEntryDTO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*
+ * Reads an import file lazily, one line at a time, so a feed of any size never has to be held in memory.
+ * CSV files start with a header naming the columns; NDJSON files hold one product object per line.
+ */
+public class ProductImportReader {
+
+    public static final String TEXT_CSV = "text/csv";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final List<String> CSV_COLUMNS = List.of("name", "description", "sku", "categoryid", "price");
+
+    private final ObjectMapper objectMapper;
+
+    public ProductImportReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public Iterator<ProductImportRow> read(InputStream body, String contentType) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        if (contentType != null && contentType.startsWith(TEXT_CSV))
+            return csvRows(reader);
+        if (contentType != null && contentType.startsWith(APPLICATION_NDJSON))
+            return new Rows(reader, 0, this::parseJson);
+
+        throw new IllegalArgumentException("Import accepts " + TEXT_CSV + " or " + APPLICATION_NDJSON);
+    }
+
+    private Iterator<ProductImportRow> csvRows(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null)
+            return Collections.emptyIterator();
+
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsvLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.keySet().containsAll(CSV_COLUMNS))
+            throw new IllegalArgumentException("CSV header must contain name, description, sku, categoryId, price");
+
+        return new Rows(reader, 1, (line, text) -> parseCsv(line, text, columns));
+    }
+
+    private ProductImportRow parseJson(long line, String text) {
+        try {
+            JsonNode node = objectMapper.readTree(text);
+            if (node == null || !node.isObject())
+                return ProductImportRow.malformed(line, "Malformed JSON");
+            return ProductImportRow.parsed(line, objectMapper.treeToValue(node, ProductEntryDTO.class));
+        } catch (JsonProcessingException ex) {
+            return ProductImportRow.malformed(line, "Malformed JSON");
+        }
+    }
+
+    private ProductImportRow parseCsv(long line, String text, Map<String, Integer> columns) {
+        List<String> fields = splitCsvLine(text);
+        if (fields == null)
+            return ProductImportRow.malformed(line, "Unterminated quoted field");
+
+        ProductEntryDTO product = new ProductEntryDTO();
+        product.setName(field(fields, columns, "name"));
+        product.setDescription(field(fields, columns, "description"));
+        product.setSku(field(fields, columns, "sku"));
+        try {
+            String categoryId = field(fields, columns, "categoryid");
+            product.setCategoryId(categoryId == null ? null : Long.valueOf(categoryId));
+        } catch (NumberFormatException ex) {
+            return ProductImportRow.malformed(line, "categoryId must be a number");
+        }
+        try {
+            String price = field(fields, columns, "price");
+            product.setPrice(price == null ? null : Double.valueOf(price));
+        } catch (NumberFormatException ex) {
+            return ProductImportRow.malformed(line, "price must be a number");
+        }
+        return ProductImportRow.parsed(line, product);
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        int index = columns.get(column);
+        if (index >= fields.size())
+            return null;
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /* Splits one CSV line, honouring double-quoted fields with "" escapes; null when a quote is left open. */
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted)
+            return null;
+
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private interface LineParser {
+        ProductImportRow parse(long line, String text);
+    }
+
+    private static final class Rows implements Iterator<ProductImportRow> {
+
+        private final BufferedReader reader;
+        private final LineParser parser;
+        private long line;
+        private ProductImportRow next;
+
+        private Rows(BufferedReader reader, long linesRead, LineParser parser) {
+            this.reader = reader;
+            this.line = linesRead;
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                String text;
+                try {
+                    text = reader.readLine();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                if (text == null)
+                    return false;
+
+                line++;
+                if (!text.isBlank())
+                    next = parser.parse(line, text);
+            }
+            return true;
+        }
+
+        @Override
+        public ProductImportRow next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            ProductImportRow row = next;
+            next = null;
+            return row;
+        }
+    }
+}
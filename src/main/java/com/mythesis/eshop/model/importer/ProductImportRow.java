@@ -0,0 +1,37 @@
+package com.mythesis.eshop.model.importer;
+
+import com.mythesis.eshop.dto.ProductEntryDTO;
+
+/* One line of an import file: either a parsed product or the reason it could not be parsed. */
+public class ProductImportRow {
+
+    private final long line;
+    private final ProductEntryDTO product;
+    private final String error;
+
+    private ProductImportRow(long line, ProductEntryDTO product, String error) {
+        this.line = line;
+        this.product = product;
+        this.error = error;
+    }
+
+    public static ProductImportRow parsed(long line, ProductEntryDTO product) {
+        return new ProductImportRow(line, product, null);
+    }
+
+    public static ProductImportRow malformed(long line, String error) {
+        return new ProductImportRow(line, null, error);
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public ProductEntryDTO getProduct() {
+        return product;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
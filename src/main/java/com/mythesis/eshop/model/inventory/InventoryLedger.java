@@ -0,0 +1,241 @@
+package com.mythesis.eshop.model.inventory;
+
+import com.mythesis.eshop.model.entity.StockLedgerEntry;
+import com.mythesis.eshop.model.repository.ProductRepository;
+import com.mythesis.eshop.model.repository.StockLedgerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/*
+ * Optional stock engine for flash sales (eshop.inventory.ledger.enabled).
+ * Tracked products keep their available stock in memory and checkouts reserve it with a CAS instead of
+ * a conditional UPDATE on the product row. Each reservation is journalled in e_stock_ledger inside the
+ * checkout's transaction, handed back if that transaction rolls back, and applied to e_product by a periodic flush.
+ * On startup a tracked product's available stock is its in_stock minus its unflushed ledger rows.
+ *
+ * Products should be tracked before their sale starts: a checkout still decrementing the row when
+ * tracking begins is not seen by the in-memory count.
+ */
+@Component
+public class InventoryLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedger.class);
+    static final int FLUSH_BATCH_SIZE = 1000;
+
+    private boolean enabled;
+    private List<Long> configuredProductIds;
+    private ProductRepository productRepository;
+    private StockLedgerRepository stockLedgerRepository;
+    private TransactionTemplate transactionTemplate;
+
+    private final ConcurrentMap<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+    /* Held by flushes and by writes that set in_stock directly, so neither overwrites the other. */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Counter reserved = Counter.builder("inventory.reservations")
+            .tag("result", "reserved")
+            .register(Metrics.globalRegistry);
+    private final Counter rejected = Counter.builder("inventory.reservations")
+            .tag("result", "rejected")
+            .register(Metrics.globalRegistry);
+    private final Timer flushTimer = Timer.builder("inventory.flush")
+            .description("Time spent applying ledger rows to e_product")
+            .register(Metrics.globalRegistry);
+
+    @Autowired
+    public InventoryLedger(@Value("${eshop.inventory.ledger.enabled:false}") boolean enabled,
+                           @Value("${eshop.inventory.hot-products:}") List<Long> configuredProductIds,
+                           ProductRepository productRepository,
+                           StockLedgerRepository stockLedgerRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.enabled = enabled;
+        this.configuredProductIds = configuredProductIds;
+        this.productRepository = productRepository;
+        this.stockLedgerRepository = stockLedgerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void recover() {
+        if (enabled && !configuredProductIds.isEmpty()) {
+            track(configuredProductIds);
+            log.info("Tracking stock of {} products in memory", available.size());
+        }
+    }
+
+    public void track(Collection<Long> productIds) {
+        if (!enabled)
+            throw new IllegalStateException("Inventory ledger is disabled");
+
+        flushLock.lock();
+        try {
+            Map<Long, Integer> stock = productRepository.findStock(productIds);
+            Map<Long, Long> pending = new HashMap<>();
+            for (Object[] row : stockLedgerRepository.sumQuantityByProductIdIn(stock.keySet())) {
+                pending.put((Long) row[0], ((Number) row[1]).longValue());
+            }
+            stock.forEach((productId, inStock) -> available.computeIfAbsent(productId,
+                    id -> new AtomicInteger((int) (inStock - pending.getOrDefault(id, 0L)))));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /* Flushes the product's pending rows first, so the row is exact again before checkouts go back to it. */
+    public void untrack(Long productId) {
+        flushLock.lock();
+        try {
+            if (available.containsKey(productId)) {
+                flush();
+                available.remove(productId);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public boolean isTracked(Long productId) {
+        return available.containsKey(productId);
+    }
+
+    public Integer availableStock(Long productId) {
+        AtomicInteger stock = available.get(productId);
+        return stock == null ? null : stock.get();
+    }
+
+    /*
+     * Reserves the tracked products of quantities all-or-nothing and journals them in the current transaction.
+     * Returns the quantities of untracked products, which the caller decrements in e_product as before.
+     */
+    public Map<Long, Integer> reserve(Map<Long, Integer> quantities) {
+        return reserve(quantities, Collections.emptyMap());
+    }
+
+    /* Like reserve, but leaves at least mustRemain units of a product available. */
+    public Map<Long, Integer> reserve(Map<Long, Integer> quantities, Map<Long, Integer> mustRemain) {
+        if (available.isEmpty())
+            return quantities;
+
+        Map<Long, Integer> untracked = new HashMap<>();
+        Map<Long, Integer> taken = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            AtomicInteger stock = available.get(entry.getKey());
+            if (stock == null) {
+                untracked.put(entry.getKey(), entry.getValue());
+            } else if (tryTake(stock, entry.getValue(), mustRemain.getOrDefault(entry.getKey(), 0))) {
+                taken.put(entry.getKey(), entry.getValue());
+            } else {
+                release(taken);
+                rejected.increment();
+                throw new IllegalStateException("Product Not In stock");
+            }
+        }
+        if (taken.isEmpty())
+            return untracked;
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(taken);
+            throw new IllegalStateException("Stock can only be reserved inside a transaction");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            /* An unknown outcome keeps the reservation: underselling is recoverable, overselling is not. */
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK)
+                    release(taken);
+            }
+        });
+
+        List<StockLedgerEntry> entries = new ArrayList<>();
+        taken.forEach((productId, quantity) -> entries.add(new StockLedgerEntry(productId, quantity)));
+        stockLedgerRepository.saveAll(entries);
+        reserved.increment();
+        return untracked;
+    }
+
+    /* Adds a direct change of a tracked product's in_stock to its available stock. */
+    public void adjust(Long productId, int delta) {
+        AtomicInteger stock = available.get(productId);
+        if (stock != null)
+            stock.addAndGet(delta);
+    }
+
+    /* Runs a direct write of in_stock without a flush applying ledger rows to the same row underneath it. */
+    public <T> T withFlushPaused(Supplier<T> action) {
+        flushLock.lock();
+        try {
+            return action.get();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${eshop.inventory.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled)
+            return;
+
+        flushLock.lock();
+        try {
+            flushTimer.record(() -> {
+                Integer flushed;
+                do {
+                    flushed = transactionTemplate.execute(status -> flushBatch());
+                } while (flushed != null && flushed == FLUSH_BATCH_SIZE);
+            });
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /* Deletes exactly the rows it applied; rows committed meanwhile wait for the next batch. */
+    private int flushBatch() {
+        List<StockLedgerEntry> entries = stockLedgerRepository.findAllByOrderByIdAsc(PageRequest.of(0, FLUSH_BATCH_SIZE));
+        if (entries.isEmpty())
+            return 0;
+
+        Map<Long, Integer> decrements = new HashMap<>();
+        List<Long> ids = new ArrayList<>(entries.size());
+        for (StockLedgerEntry entry : entries) {
+            decrements.merge(entry.getProductId(), entry.getQuantity(), Integer::sum);
+            ids.add(entry.getId());
+        }
+        productRepository.applyStockDecrements(decrements);
+        stockLedgerRepository.deleteAllByIdInBatch(ids);
+        return entries.size();
+    }
+
+    private static boolean tryTake(AtomicInteger stock, int quantity, int mustRemain) {
+        int current;
+        do {
+            current = stock.get();
+            if (current - quantity < mustRemain)
+                return false;
+        } while (!stock.compareAndSet(current, current - quantity));
+        return true;
+    }
+
+    private void release(Map<Long, Integer> taken) {
+        taken.forEach(this::adjust);
+    }
+}
@@ -0,0 +1,236 @@
+package com.mythesis.eshop.model.inventory;
+
+import com.mythesis.eshop.model.entity.CartItem;
+import com.mythesis.eshop.model.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Optional add-to-cart stock holds (eshop.inventory.holds.enabled).
+ * A cart item holds its quantity for ttl; checkouts of other carts must leave held stock alone, and a hold
+ * is dropped when its cart is purchased, its item is removed, or it expires on the timer wheel.
+ * Holds live in memory and only steer who gets the stock: the conditional decrement at checkout still
+ * guarantees nothing is oversold, whatever the holds say.
+ */
+@Component
+public class StockHoldRegistry {
+
+    private static final int WHEEL_SLOTS = 512;
+
+    private boolean enabled;
+    private long ttlNanos;
+    private ProductRepository productRepository;
+    private InventoryLedger inventoryLedger;
+
+    private final ConcurrentMap<Long, Hold> holdsByCartItem = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, AtomicInteger> heldByProduct = new ConcurrentHashMap<>();
+    private final TimerWheel<Hold> expiries;
+
+    private final Counter rejected = Counter.builder("inventory.holds.rejected")
+            .register(Metrics.globalRegistry);
+    private final Counter expired = Counter.builder("inventory.holds.expired")
+            .register(Metrics.globalRegistry);
+
+    @Autowired
+    public StockHoldRegistry(@Value("${eshop.inventory.holds.enabled:false}") boolean enabled,
+                             @Value("${eshop.inventory.holds.ttl:PT15M}") Duration ttl,
+                             @Value("${eshop.inventory.holds.tick-ms:1000}") long tickMillis,
+                             ProductRepository productRepository,
+                             InventoryLedger inventoryLedger) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.productRepository = productRepository;
+        this.inventoryLedger = inventoryLedger;
+        this.expiries = new TimerWheel<>(TimeUnit.MILLISECONDS.toNanos(tickMillis), WHEEL_SLOTS, System.nanoTime());
+
+        Gauge.builder("inventory.holds.active", holdsByCartItem, Map::size)
+                .register(Metrics.globalRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* Places or replaces the cart item's hold, refreshing its expiry; the item's previous hold counts as available. */
+    public void hold(Long cartItemId, Long productId, int quantity) {
+        if (!enabled)
+            return;
+
+        AtomicInteger held = heldByProduct.computeIfAbsent(productId, id -> new AtomicInteger());
+        /* Serialises holds on one product so two carts cannot both claim the last units. */
+        synchronized (held) {
+            Hold previous = holdsByCartItem.get(cartItemId);
+            int ownHeld = previous != null && previous.productId.equals(productId) ? previous.quantity : 0;
+            if (availableStock(productId) - held.get() + ownHeld < quantity) {
+                rejected.increment();
+                throw new IllegalArgumentException("Not enough stock to hold");
+            }
+
+            Hold hold = new Hold(cartItemId, productId, quantity, System.nanoTime() + ttlNanos);
+            held.addAndGet(quantity);
+            release(holdsByCartItem.put(cartItemId, hold));
+            expiries.schedule(hold, hold.expiresAt);
+        }
+    }
+
+    /*
+     * Holds a batch of cart items all or nothing: if one of them cannot be held, or the surrounding transaction
+     * rolls back, every item gets back the hold it had before the batch.
+     */
+    public void holdAll(Collection<CartItem> cartItems) {
+        if (!enabled || cartItems.isEmpty())
+            return;
+
+        Map<Long, Hold> previous = new HashMap<>();
+        for (CartItem cartItem : cartItems) {
+            previous.put(cartItem.getId(), holdsByCartItem.get(cartItem.getId()));
+        }
+        try {
+            for (CartItem cartItem : cartItems) {
+                hold(cartItem.getId(), cartItem.getProduct().getId(), cartItem.getQuantity());
+            }
+        } catch (RuntimeException ex) {
+            restore(previous);
+            throw ex;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK)
+                        restore(previous);
+                }
+            });
+        }
+    }
+
+    public void release(Collection<Long> cartItemIds) {
+        if (!enabled)
+            return;
+        for (Long cartItemId : cartItemIds) {
+            Hold hold = holdsByCartItem.get(cartItemId);
+            if (hold != null && holdsByCartItem.remove(cartItemId, hold))
+                release(hold);
+        }
+    }
+
+    /* Releases after the surrounding transaction commits; a rolled back checkout keeps its holds for the retry. */
+    public void releaseAfterCommit(Collection<Long> cartItemIds) {
+        if (!enabled || cartItemIds.isEmpty())
+            return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(cartItemIds);
+            return;
+        }
+        List<Long> ids = new ArrayList<>(cartItemIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(ids);
+            }
+        });
+    }
+
+    /* Per product, the quantity held by cart items other than the given ones. Products nobody holds are left out. */
+    public Map<Long, Integer> heldByOthers(Collection<Long> cartItemIds, Collection<Long> productIds) {
+        if (!enabled || heldByProduct.isEmpty())
+            return Collections.emptyMap();
+
+        Map<Long, Integer> held = new HashMap<>();
+        for (Long productId : productIds) {
+            AtomicInteger total = heldByProduct.get(productId);
+            if (total != null && total.get() > 0)
+                held.put(productId, total.get());
+        }
+        for (Long cartItemId : cartItemIds) {
+            Hold own = holdsByCartItem.get(cartItemId);
+            if (own != null)
+                held.computeIfPresent(own.productId, (id, quantity) -> quantity - own.quantity > 0 ? quantity - own.quantity : null);
+        }
+        return held;
+    }
+
+    public int heldQuantity(Long productId) {
+        AtomicInteger held = heldByProduct.get(productId);
+        return held == null ? 0 : held.get();
+    }
+
+    /* Everything that expired since the last tick is released in one pass, one update per product. */
+    @Scheduled(fixedDelayString = "${eshop.inventory.holds.tick-ms:1000}")
+    public void expireHolds() {
+        if (!enabled)
+            return;
+
+        Map<Long, Integer> releasedByProduct = new HashMap<>();
+        for (Hold hold : expiries.advance(System.nanoTime())) {
+            if (holdsByCartItem.remove(hold.cartItemId, hold) && hold.active.compareAndSet(true, false)) {
+                releasedByProduct.merge(hold.productId, hold.quantity, Integer::sum);
+                expired.increment();
+            }
+        }
+        releasedByProduct.forEach((productId, quantity) -> heldByProduct.get(productId).addAndGet(-quantity));
+    }
+
+    private int availableStock(Long productId) {
+        Integer tracked = inventoryLedger.availableStock(productId);
+        if (tracked != null)
+            return tracked;
+        Integer stock = productRepository.findStock(List.of(productId)).get(productId);
+        if (stock == null)
+            throw new NoSuchElementException("No such Product");
+        return stock;
+    }
+
+    /* Puts back the given holds, keeping their original expiry; a null drops whatever the item holds now. */
+    private void restore(Map<Long, Hold> holds) {
+        holds.forEach((cartItemId, hold) -> {
+            release(holdsByCartItem.remove(cartItemId));
+            if (hold == null)
+                return;
+
+            Hold restored = new Hold(cartItemId, hold.productId, hold.quantity, hold.expiresAt);
+            AtomicInteger held = heldByProduct.computeIfAbsent(hold.productId, id -> new AtomicInteger());
+            synchronized (held) {
+                held.addAndGet(restored.quantity);
+                release(holdsByCartItem.put(cartItemId, restored));
+            }
+            expiries.schedule(restored, restored.expiresAt);
+        });
+    }
+
+    private void release(Hold hold) {
+        if (hold != null && hold.active.compareAndSet(true, false))
+            heldByProduct.get(hold.productId).addAndGet(-hold.quantity);
+    }
+
+    private static final class Hold {
+        private final Long cartItemId;
+        private final Long productId;
+        private final int quantity;
+        private final long expiresAt;
+        private final AtomicBoolean active = new AtomicBoolean(true);
+
+        private Hold(Long cartItemId, Long productId, int quantity, long expiresAt) {
+            this.cartItemId = cartItemId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
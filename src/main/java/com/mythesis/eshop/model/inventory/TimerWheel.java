@@ -0,0 +1,74 @@
+package com.mythesis.eshop.model.inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * Hashed timer wheel: scheduling is O(1) from any thread, and each advance only looks at the slots of the ticks
+ * that passed instead of every pending item. Deadlines further out than one rotation are carried around again.
+ * advance() must be called from one thread at a time.
+ */
+public class TimerWheel<T> {
+
+    private final long tickNanos;
+    private final Queue<Timeout<T>>[] slots;
+    private volatile long processedTick;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickNanos, int slotCount, long startNanos) {
+        if (tickNanos < 1 || slotCount < 1)
+            throw new IllegalArgumentException("tickNanos and slotCount must be positive");
+
+        this.tickNanos = tickNanos;
+        this.slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.processedTick = startNanos / tickNanos;
+    }
+
+    public void schedule(T item, long deadlineNanos) {
+        /* A deadline that already passed goes to the next tick rather than a slot advance() has left behind. */
+        long tick = Math.max(Math.floorDiv(deadlineNanos + tickNanos - 1, tickNanos), processedTick + 1);
+        slots[slotOf(tick)].add(new Timeout<>(item, tick));
+    }
+
+    /* Returns every item whose deadline is at or before nowNanos, in no particular order. */
+    public List<T> advance(long nowNanos) {
+        List<T> due = new ArrayList<>();
+        long nowTick = Math.floorDiv(nowNanos, tickNanos);
+        /* Past one rotation every slot has been visited once, so a long stall costs at most one full sweep. */
+        long from = Math.max(processedTick + 1, nowTick - slots.length + 1);
+        for (long tick = from; tick <= nowTick; tick++) {
+            Queue<Timeout<T>> slot = slots[slotOf(tick)];
+            int pending = slot.size();
+            for (int i = 0; i < pending; i++) {
+                Timeout<T> timeout = slot.poll();
+                if (timeout == null)
+                    break;
+                if (timeout.tick <= nowTick)
+                    due.add(timeout.item);
+                else
+                    slot.add(timeout);
+            }
+        }
+        processedTick = Math.max(processedTick, nowTick);
+        return due;
+    }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.length);
+    }
+
+    private static final class Timeout<T> {
+        private final T item;
+        private final long tick;
+
+        private Timeout(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+}
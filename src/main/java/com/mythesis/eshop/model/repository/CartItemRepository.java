@@ -2,12 +2,32 @@ package com.mythesis.eshop.model.repository;
 
 import com.mythesis.eshop.model.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
+    @Query("SELECT ci " +
+            "FROM CartItem ci JOIN FETCH ci.product p JOIN FETCH p.category " +
+            "WHERE ci.cart.id = ?1")
     public List<CartItem> findAllByCartId (Long cartId);
+
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id IN ?1")
+    public int deleteAllByCartIdIn (Collection<Long> cartIds);
+
+    public Optional<CartItem> findByCartIdAndProductId (Long cartId, Long productId);
+
+    /* A cart holds one row per product; adding the product again only raises that row's quantity. */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CartItem ci " +
+            "SET ci.quantity = ci.quantity + ?3, ci.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE ci.cart.id = ?1 AND ci.product.id = ?2")
+    public int incrementQuantity (Long cartId, Long productId, int quantity);
 }
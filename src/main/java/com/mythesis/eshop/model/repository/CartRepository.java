@@ -1,13 +1,76 @@
 package com.mythesis.eshop.model.repository;
 
 import com.mythesis.eshop.model.entity.Cart;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
 
     public List<Cart> findAllByUserId (Long userId);
+
+    /* Serialises changes to one cart's items until the transaction ends. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cart c WHERE c.id = ?1")
+    public Optional<Cart> findByIdForUpdate (Long cartId);
+
+    @Query("SELECT c.id FROM Cart c WHERE c.updatedAt < ?1 ORDER BY c.updatedAt")
+    public List<Long> findIdsIdleSince (LocalDateTime cutoff, Pageable pageable);
+
+    /* Re-checks idleness under a row lock, so a cart touched since it was picked is skipped. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id FROM Cart c WHERE c.id IN ?1 AND c.updatedAt < ?2")
+    public List<Long> lockIdleByIds (Collection<Long> cartIds, LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.id IN ?1")
+    public int deleteAllByIdIn (Collection<Long> cartIds);
+
+    /* The cart with its items, their products and categories in one statement; the user stays unloaded. */
+    @Query("SELECT DISTINCT c " +
+            "FROM Cart c LEFT JOIN FETCH c.cartItems ci LEFT JOIN FETCH ci.product p LEFT JOIN FETCH p.category " +
+            "WHERE c.id = ?1")
+    public Optional<Cart> findViewById (Long cartId);
+
+    /* Relative update priced from the product row, so concurrent changes to one cart never overwrite each other. */
+    @Modifying
+    @Query(value = "UPDATE e_cart " +
+            "SET total = ROUND(total + ?3 * (SELECT p.price FROM e_product p WHERE p.id = ?2), 2), " +
+            "item_count = item_count + ?3, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ?1", nativeQuery = true)
+    public int addToTotals(Long cartId, Long productId, int quantity);
+
+    /* Applies a whole batch of item changes at once, with the amount already priced by the caller. */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE e_cart " +
+            "SET total = ROUND(total + ?2, 2), item_count = item_count + ?3, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ?1", nativeQuery = true)
+    public int addAmountToTotals(Long cartId, double amount, int quantity);
+
+    /* The cast keeps the delta fractional; untyped, it would take the integer type of the quantity sum. */
+    @Modifying
+    @Query(value = "UPDATE e_cart c " +
+            "SET c.total = ROUND(c.total + CAST(?2 AS DECIMAL(19, 6)) * (SELECT SUM(ci.quantity) FROM e_cart_item ci " +
+            "WHERE ci.cart_id = c.id AND ci.product_id = ?1), 2) " +
+            "WHERE c.id IN (SELECT ci.cart_id FROM e_cart_item ci WHERE ci.product_id = ?1)", nativeQuery = true)
+    public int repriceProduct(Long productId, double priceDelta);
+
+    /* Carts created before totals were maintained have no item_count yet; they are summed up once. */
+    @Modifying
+    @Query(value = "UPDATE e_cart c " +
+            "SET c.total = COALESCE((SELECT ROUND(SUM(ci.quantity * p.price), 2) FROM e_cart_item ci " +
+            "JOIN e_product p ON p.id = ci.product_id WHERE ci.cart_id = c.id), 0), " +
+            "c.item_count = COALESCE((SELECT SUM(ci.quantity) FROM e_cart_item ci WHERE ci.cart_id = c.id), 0) " +
+            "WHERE c.item_count IS NULL", nativeQuery = true)
+    public int recalculateUnmaintainedTotals();
 }
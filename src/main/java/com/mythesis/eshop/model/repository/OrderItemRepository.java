@@ -2,6 +2,8 @@ package com.mythesis.eshop.model.repository;
 
 import com.mythesis.eshop.model.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +12,14 @@ import java.util.List;
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
    public List<OrderItem> findAllByOrderId (Long orderId);
+
+   /*
+    * For the table that stands in for e_order_item_seq where sequences are missing. The pooled generator hands out
+    * the 50 ids ending at each value it reads, so the next value must be at least 50 above the highest id.
+    */
+   @Modifying
+   @Query(value = "UPDATE e_order_item_seq " +
+           "SET next_val = (SELECT MAX(id) + 50 FROM e_order_item) " +
+           "WHERE next_val < (SELECT MAX(id) + 50 FROM e_order_item)", nativeQuery = true)
+   public int seedIdSequence();
 }
@@ -2,12 +2,25 @@ package com.mythesis.eshop.model.repository;
 
 import com.mythesis.eshop.model.entity.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
     public List<Order> findAllByUserId(Long userId);
+
+    @Query("SELECT COALESCE(SUM(o.total), 0) FROM Order o")
+    public Double sumTotal();
+
+    /* Rows of [day, number of orders] for every day since the given one, oldest first. */
+    @Query("SELECT o.createdAt, COUNT(o) " +
+            "FROM Order o " +
+            "WHERE o.createdAt >= ?1 " +
+            "GROUP BY o.createdAt " +
+            "ORDER BY o.createdAt")
+    public List<Object[]> countPerDaySince(LocalDate since);
 }
@@ -1,18 +1,76 @@
 package com.mythesis.eshop.model.repository;
 
+import com.mythesis.eshop.dto.ProductInfoDTO;
 import com.mythesis.eshop.model.entity.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductStockRepository {
 
     Optional<Product> findBySku(String sku);
 
+    /* Keeps stock reservations from committing between reading a product and writing it back whole. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = ?1")
+    Optional<Product> findByIdForUpdate(Long productId);
+
+    @Query("SELECT p.sku FROM Product p WHERE p.sku IN ?1")
+    Set<String> findExistingSkus(Collection<String> skus);
+
+    /* Listing queries select a flat projection joined with the category title, one statement per call. */
+    @Query("SELECT new com.mythesis.eshop.dto.ProductInfoDTO(p.id, p.name, p.description, p.sku, c.title, p.price) " +
+            "FROM Product p JOIN p.category c " +
+            "ORDER BY p.id")
+    List<ProductInfoDTO> findAllInfo();
+
+    /* Keyset page: products with id greater than the given one, ordered by id. */
+    @Query("SELECT new com.mythesis.eshop.dto.ProductInfoDTO(p.id, p.name, p.description, p.sku, c.title, p.price) " +
+            "FROM Product p JOIN p.category c " +
+            "WHERE p.id > ?1 " +
+            "ORDER BY p.id")
+    List<ProductInfoDTO> findAllInfoAfterId(Long afterId, Pageable pageable);
+
+    /* Keyset page restricted to a category and a price range; null filters match everything. */
+    @Query("SELECT new com.mythesis.eshop.dto.ProductInfoDTO(p.id, p.name, p.description, p.sku, c.title, p.price) " +
+            "FROM Product p JOIN p.category c " +
+            "WHERE (?1 IS NULL OR c.id = ?1) AND " +
+            "(?2 IS NULL OR p.price >= ?2) AND " +
+            "(?3 IS NULL OR p.price <= ?3) AND " +
+            "p.id > ?4 " +
+            "ORDER BY p.id")
+    List<ProductInfoDTO> findAllInfoMatching(Long categoryId, Double minPrice, Double maxPrice, Long afterId, Pageable pageable);
+
+    @Query("SELECT new com.mythesis.eshop.dto.ProductInfoDTO(p.id, p.name, p.description, p.sku, c.title, p.price) " +
+            "FROM Product p JOIN p.category c " +
+            "WHERE p.id IN ?1")
+    List<ProductInfoDTO> findAllInfoByIdIn(Collection<Long> productIds);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.mythesis.eshop.dto.ProductInfoDTO(p.id, p.name, p.description, p.sku, c.title, p.price) " +
+            "FROM Product p JOIN p.category c " +
+            "ORDER BY p.id")
+    Stream<ProductInfoDTO> streamAllInfo();
+
+    /* Rows of (product id, category id, price) for the facet index. */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p.id, p.category.id, p.price FROM Product p")
+    Stream<Object[]> streamAllFacetValues();
+
     @Query("SELECT p " +
             "FROM User u, Order o, OrderItem oi, Product p " +
             "WHERE o.user.id = u.id AND " +
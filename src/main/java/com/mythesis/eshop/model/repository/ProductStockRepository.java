@@ -0,0 +1,22 @@
+package com.mythesis.eshop.model.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public interface ProductStockRepository {
+
+    /* Decrements each product's stock only where enough is left and returns the ids that could not be served. */
+    default List<Long> decrementStock(Map<Long, Integer> quantities) {
+        return decrementStock(quantities, Collections.emptyMap());
+    }
+
+    /* Like decrementStock, but leaves at least mustRemain units of a product in stock. */
+    List<Long> decrementStock(Map<Long, Integer> quantities, Map<Long, Integer> mustRemain);
+
+    /* Unconditional decrement, for amounts that were already reserved elsewhere. */
+    void applyStockDecrements(Map<Long, Integer> quantities);
+
+    Map<Long, Integer> findStock(Collection<Long> productIds);
+}
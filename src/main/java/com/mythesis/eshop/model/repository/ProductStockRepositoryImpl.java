@@ -0,0 +1,76 @@
+package com.mythesis.eshop.model.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+
+public class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    private static final String DECREMENT_STOCK =
+            "UPDATE e_product " +
+            "SET in_stock = in_stock - ?, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ? AND in_stock >= ?";
+
+    private static final String APPLY_STOCK_DECREMENT =
+            "UPDATE e_product " +
+            "SET in_stock = in_stock - ?, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ?";
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ProductStockRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Long> decrementStock(Map<Long, Integer> quantities, Map<Long, Integer> mustRemain) {
+        /* Rows are always locked in id order so concurrent checkouts cannot deadlock each other. */
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+
+        int[][] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK, entries, entries.size(),
+                (ps, entry) -> {
+                    ps.setInt(1, entry.getValue());
+                    ps.setLong(2, entry.getKey());
+                    ps.setInt(3, entry.getValue() + mustRemain.getOrDefault(entry.getKey(), 0));
+                });
+
+        /* A row count other than 1 (including SUCCESS_NO_INFO from rewritten batches) is treated as not served. */
+        List<Long> unavailable = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : updated) {
+            for (int count : batch) {
+                if (count != 1)
+                    unavailable.add(entries.get(index).getKey());
+                index++;
+            }
+        }
+        return unavailable;
+    }
+
+    @Override
+    public void applyStockDecrements(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        jdbcTemplate.batchUpdate(APPLY_STOCK_DECREMENT, entries, entries.size(),
+                (ps, entry) -> {
+                    ps.setInt(1, entry.getValue());
+                    ps.setLong(2, entry.getKey());
+                });
+    }
+
+    @Override
+    public Map<Long, Integer> findStock(Collection<Long> productIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        if (productIds.isEmpty())
+            return stock;
+
+        String placeholders = String.join(",", Collections.nCopies(productIds.size(), "?"));
+        jdbcTemplate.query("SELECT id, in_stock FROM e_product WHERE id IN (" + placeholders + ")",
+                rs -> {
+                    stock.put(rs.getLong(1), rs.getInt(2));
+                },
+                productIds.toArray());
+        return stock;
+    }
+}
@@ -0,0 +1,19 @@
+package com.mythesis.eshop.model.repository;
+
+import com.mythesis.eshop.model.entity.StockLedgerEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockLedgerRepository extends JpaRepository<StockLedgerEntry, Long> {
+
+    List<StockLedgerEntry> findAllByOrderByIdAsc(Pageable pageable);
+
+    @Query("SELECT l.productId, SUM(l.quantity) FROM StockLedgerEntry l WHERE l.productId IN ?1 GROUP BY l.productId")
+    List<Object[]> sumQuantityByProductIdIn(Collection<Long> productIds);
+}
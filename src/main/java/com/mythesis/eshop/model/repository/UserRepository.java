@@ -2,6 +2,8 @@ package com.mythesis.eshop.model.repository;
 
 import com.mythesis.eshop.model.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,4 +13,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
     public Optional<User> findByUsername(String username);
     public Optional<User> findByPhone(String phone);
 
+    @Modifying
+    @Query("UPDATE User u " +
+            "SET u.balance = u.balance - ?2, u.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE u.id = ?1 AND u.balance >= ?2")
+    public int deductBalance(Long userId, Double amount);
+
 }
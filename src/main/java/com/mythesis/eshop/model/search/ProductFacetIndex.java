@@ -0,0 +1,230 @@
+package com.mythesis.eshop.model.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/*
+ * Product counts per category and per price bucket, kept up to date as products change.
+ * Whole buckets are answered from precomputed counts; only the buckets a price bound cuts through
+ * are counted from the category's sorted prices.
+ */
+@Component
+public class ProductFacetIndex {
+
+    /* Bucket i holds prices in [PRICE_BOUNDARIES[i - 1], PRICE_BOUNDARIES[i]); the last one is open ended. */
+    public static final double[] PRICE_BOUNDARIES = { 10, 25, 50, 100, 250, 500, 1000 };
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Long, Entry> products = new HashMap<>();
+    private Map<Long, CategoryCounts> categories = new HashMap<>();
+
+    /* Changes made while a rebuild is running, replayed on top of the rebuilt counts. */
+    private Map<Long, Entry> pendingChanges;
+
+    public void index(Long productId, Long categoryId, Double price) {
+        Entry entry = new Entry(categoryId, price);
+
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null)
+                pendingChanges.put(productId, entry);
+            put(products, categories, productId, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null)
+                pendingChanges.put(productId, null);
+            put(products, categories, productId, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* The source hands over (productId, categoryId, price) rows. */
+    public void rebuild(Consumer<Consumer<Object[]>> source) {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Long, Entry> rebuiltProducts = new HashMap<>();
+        Map<Long, CategoryCounts> rebuiltCategories = new HashMap<>();
+        try {
+            source.accept(row -> put(rebuiltProducts, rebuiltCategories, (Long) row[0],
+                    new Entry((Long) row[1], (Double) row[2])));
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Entry> change : pendingChanges.entrySet()) {
+                put(rebuiltProducts, rebuiltCategories, change.getKey(), change.getValue());
+            }
+            products = rebuiltProducts;
+            categories = rebuiltCategories;
+            pendingChanges = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* Products per category with a price in [minPrice, maxPrice]; null bounds are open. */
+    public Map<Long, Long> countByCategory(Double minPrice, Double maxPrice) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Long> counts = new TreeMap<>();
+            for (Map.Entry<Long, CategoryCounts> category : categories.entrySet()) {
+                long count = category.getValue().count(minPrice, maxPrice);
+                if (count > 0)
+                    counts.put(category.getKey(), count);
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* Products per price bucket, in one category or across all of them. */
+    public long[] countByPriceBucket(Long categoryId) {
+        lock.readLock().lock();
+        try {
+            long[] counts = new long[PRICE_BOUNDARIES.length + 1];
+            if (categoryId != null) {
+                CategoryCounts category = categories.get(categoryId);
+                if (category != null)
+                    category.addBucketCounts(counts);
+            } else {
+                for (CategoryCounts category : categories.values()) {
+                    category.addBucketCounts(counts);
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long count(Long categoryId, Double minPrice, Double maxPrice) {
+        lock.readLock().lock();
+        try {
+            if (categoryId != null) {
+                CategoryCounts category = categories.get(categoryId);
+                return category == null ? 0 : category.count(minPrice, maxPrice);
+            }
+            long count = 0;
+            for (CategoryCounts category : categories.values()) {
+                count += category.count(minPrice, maxPrice);
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static int bucketOf(double price) {
+        for (int i = 0; i < PRICE_BOUNDARIES.length; i++) {
+            if (price < PRICE_BOUNDARIES[i])
+                return i;
+        }
+        return PRICE_BOUNDARIES.length;
+    }
+
+    private static void put(Map<Long, Entry> products,
+                            Map<Long, CategoryCounts> categories,
+                            Long productId,
+                            Entry entry) {
+        Entry previous = entry == null ? products.remove(productId) : products.put(productId, entry);
+        if (previous != null) {
+            CategoryCounts category = categories.get(previous.categoryId);
+            category.remove(previous.price);
+            if (category.total == 0)
+                categories.remove(previous.categoryId);
+        }
+        if (entry != null)
+            categories.computeIfAbsent(entry.categoryId, id -> new CategoryCounts()).add(entry.price);
+    }
+
+    private static final class Entry {
+        private final Long categoryId;
+        private final double price;
+
+        private Entry(Long categoryId, Double price) {
+            this.categoryId = categoryId;
+            this.price = price == null ? 0.0 : price;
+        }
+    }
+
+    private static final class CategoryCounts {
+        private final long[] buckets = new long[PRICE_BOUNDARIES.length + 1];
+        private final TreeMap<Double, Integer> prices = new TreeMap<>();
+        private long total;
+
+        private void add(double price) {
+            buckets[bucketOf(price)]++;
+            prices.merge(price, 1, Integer::sum);
+            total++;
+        }
+
+        private void remove(double price) {
+            buckets[bucketOf(price)]--;
+            prices.computeIfPresent(price, (p, count) -> count == 1 ? null : count - 1);
+            total--;
+        }
+
+        private void addBucketCounts(long[] counts) {
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] += buckets[i];
+            }
+        }
+
+        private long count(Double minPrice, Double maxPrice) {
+            if (minPrice == null && maxPrice == null)
+                return total;
+
+            double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+            double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+            if (min > max)
+                return 0;
+
+            int first = minPrice == null ? 0 : bucketOf(min);
+            int last = maxPrice == null ? PRICE_BOUNDARIES.length : bucketOf(max);
+            if (first == last)
+                return countPrices(min, max, true);
+
+            long count = 0;
+            for (int i = first + 1; i < last; i++) {
+                count += buckets[i];
+            }
+            count += minPrice == null ? buckets[first] : countPrices(min, PRICE_BOUNDARIES[first], false);
+            count += maxPrice == null ? buckets[last] : countPrices(PRICE_BOUNDARIES[last - 1], max, true);
+            return count;
+        }
+
+        private long countPrices(double min, double max, boolean maxInclusive) {
+            long count = 0;
+            for (int matching : prices.subMap(min, true, max, maxInclusive).values()) {
+                count += matching;
+            }
+            return count;
+        }
+    }
+}
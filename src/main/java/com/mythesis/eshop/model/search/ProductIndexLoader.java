@@ -0,0 +1,41 @@
+package com.mythesis.eshop.model.search;
+
+import com.mythesis.eshop.model.service.ProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/* Fills the search and facet indexes from the catalog once the application has started; later writes keep them current. */
+@Component
+public class ProductIndexLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductIndexLoader.class);
+
+    private final ProductSearchIndex searchIndex;
+    private final ProductFacetIndex facetIndex;
+    private final ProductService productService;
+
+    @Autowired
+    public ProductIndexLoader(ProductSearchIndex searchIndex,
+                              ProductFacetIndex facetIndex,
+                              ProductService productService) {
+        this.searchIndex = searchIndex;
+        this.facetIndex = facetIndex;
+        this.productService = productService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long startedAt = System.nanoTime();
+        searchIndex.rebuild(productService::streamAllInfo);
+        log.info("Indexed {} products for search in {} ms",
+                searchIndex.size(), (System.nanoTime() - startedAt) / 1_000_000);
+
+        startedAt = System.nanoTime();
+        facetIndex.rebuild(productService::streamAllFacetValues);
+        log.info("Computed product facets in {} ms", (System.nanoTime() - startedAt) / 1_000_000);
+    }
+}
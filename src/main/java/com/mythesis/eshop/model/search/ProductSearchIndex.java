@@ -0,0 +1,299 @@
+package com.mythesis.eshop.model.search;
+
+import com.mythesis.eshop.dto.ProductInfoDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/*
+ * In-process inverted index over product name, description and sku.
+ * Terms live in a sorted map so a query token also matches every term it prefixes;
+ * hits are ranked by field weight times inverse document frequency and every query token must match.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final float SKU_WEIGHT = 5.0f;
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_FACTOR = 0.5f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private NavigableMap<String, Postings> terms = new TreeMap<>();
+    private Map<Long, String[]> documentTerms = new HashMap<>();
+
+    /* Changes made while a rebuild is running, replayed on top of the rebuilt index. */
+    private Map<Long, ProductInfoDTO> pendingChanges;
+
+    public void index(Long productId, String name, String description, String sku) {
+        ProductInfoDTO product = new ProductInfoDTO(productId, name, description, sku, null, null);
+
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null)
+                pendingChanges.put(productId, product);
+            removeDocument(terms, documentTerms, productId);
+            addDocument(terms, documentTerms, product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null)
+                pendingChanges.put(productId, null);
+            removeDocument(terms, documentTerms, productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* Builds a fresh index from the source while searches keep using the current one, then swaps it in. */
+    public void rebuild(Consumer<Consumer<ProductInfoDTO>> source) {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        NavigableMap<String, Postings> rebuiltTerms = new TreeMap<>();
+        Map<Long, String[]> rebuiltDocuments = new HashMap<>();
+        try {
+            source.accept(product -> addDocument(rebuiltTerms, rebuiltDocuments, product));
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, ProductInfoDTO> change : pendingChanges.entrySet()) {
+                removeDocument(rebuiltTerms, rebuiltDocuments, change.getKey());
+                if (change.getValue() != null)
+                    addDocument(rebuiltTerms, rebuiltDocuments, change.getValue());
+            }
+            terms = rebuiltTerms;
+            documentTerms = rebuiltDocuments;
+            pendingChanges = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* Product ids matching every token of the query, best first. */
+    public List<Long> search(String query, int limit) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(query));
+        if (tokens.isEmpty() || limit < 1)
+            return Collections.emptyList();
+
+        Map<Long, Float> scores = null;
+        lock.readLock().lock();
+        try {
+            int documents = documentTerms.size();
+            List<List<Postings>> matches = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                matches.add(matchingPostings(token));
+            }
+            /* Rarest token first, so the following ones only have to score the surviving candidates. */
+            matches.sort(Comparator.comparingLong(ProductSearchIndex::postingCount));
+
+            for (List<Postings> tokenMatches : matches) {
+                scores = scoreToken(tokenMatches, documents, scores);
+                if (scores.isEmpty())
+                    return Collections.emptyList();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return topHits(scores, limit);
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null)
+            return Collections.emptyList();
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty())
+                tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /*
+     * The exact term first, then the terms the token is a prefix of. A short prefix can expand to thousands of
+     * terms; only the MAX_PREFIX_EXPANSIONS found in the most documents are kept, so the common matches survive.
+     */
+    private List<Postings> matchingPostings(String token) {
+        PriorityQueue<Postings> expansions = new PriorityQueue<>(MAX_PREFIX_EXPANSIONS + 1,
+                Comparator.comparingInt(postings -> postings.size));
+        for (Postings prefixed : terms.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+            expansions.offer(prefixed);
+            if (expansions.size() > MAX_PREFIX_EXPANSIONS)
+                expansions.poll();
+        }
+
+        List<Postings> matches = new ArrayList<>(expansions.size() + 1);
+        matches.add(terms.get(token));
+        matches.addAll(expansions);
+        return matches;
+    }
+
+    private static long postingCount(List<Postings> matches) {
+        long count = 0;
+        for (Postings postings : matches) {
+            if (postings != null)
+                count += postings.size;
+        }
+        return count;
+    }
+
+    /* Scores for one token, summed with the previous tokens' scores of the documents that match both. */
+    private static Map<Long, Float> scoreToken(List<Postings> matches, int documents, Map<Long, Float> candidates) {
+        Map<Long, Float> tokenScores = new HashMap<>();
+        for (int i = 0; i < matches.size(); i++) {
+            Postings postings = matches.get(i);
+            if (postings != null) {
+                float factor = idf(postings, documents) * (i == 0 ? 1.0f : PREFIX_FACTOR);
+                postings.addScores(tokenScores, factor, candidates);
+            }
+        }
+
+        if (candidates != null)
+            tokenScores.replaceAll((productId, score) -> score + candidates.get(productId));
+        return tokenScores;
+    }
+
+    private static float idf(Postings postings, int documents) {
+        return (float) Math.log(1.0 + (double) documents / postings.size);
+    }
+
+    private static List<Long> topHits(Map<Long, Float> scores, int limit) {
+        Comparator<Map.Entry<Long, Float>> ranking = Map.Entry.<Long, Float>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Float>comparingByKey().reversed());
+
+        PriorityQueue<Map.Entry<Long, Float>> best = new PriorityQueue<>(limit + 1, ranking);
+        for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+            best.offer(entry);
+            if (best.size() > limit)
+                best.poll();
+        }
+
+        List<Long> hits = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            hits.add(best.poll().getKey());
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private static void addDocument(NavigableMap<String, Postings> terms,
+                                    Map<Long, String[]> documentTerms,
+                                    ProductInfoDTO product) {
+        Map<String, Float> weights = new HashMap<>();
+        addWeights(weights, product.getSku(), SKU_WEIGHT);
+        addWeights(weights, product.getName(), NAME_WEIGHT);
+        addWeights(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        String[] indexed = new String[weights.size()];
+        int i = 0;
+        for (Map.Entry<String, Float> weight : weights.entrySet()) {
+            Postings postings = terms.computeIfAbsent(weight.getKey(), term -> new Postings());
+            postings.add(product.getId(), weight.getValue());
+            /* Keep the map's own key instance so each term string is stored once. */
+            indexed[i++] = terms.ceilingKey(weight.getKey());
+        }
+        documentTerms.put(product.getId(), indexed);
+    }
+
+    private static void removeDocument(NavigableMap<String, Postings> terms,
+                                       Map<Long, String[]> documentTerms,
+                                       Long productId) {
+        String[] indexed = documentTerms.remove(productId);
+        if (indexed == null)
+            return;
+
+        for (String term : indexed) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(productId) && postings.size == 0)
+                terms.remove(term);
+        }
+    }
+
+    private static void addWeights(Map<String, Float> weights, String text, float weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Float::sum);
+        }
+    }
+
+    /*
+     * Parallel primitive arrays, to keep millions of postings compact. Ids are kept sorted, so a document is found
+     * by binary search; new products carry the highest ids and are appended.
+     */
+    private static final class Postings {
+        private long[] ids = new long[2];
+        private float[] weights = new float[2];
+        private int size;
+
+        private void add(long id, float weight) {
+            int index = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0 && index < size) {
+                weights[index] = weight;
+                return;
+            }
+            if (index < 0)
+                index = -index - 1;
+
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(weights, index, weights, index + 1, size - index);
+            ids[index] = id;
+            weights[index] = weight;
+            size++;
+        }
+
+        private boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0)
+                return false;
+
+            size--;
+            System.arraycopy(ids, index + 1, ids, index, size - index);
+            System.arraycopy(weights, index + 1, weights, index, size - index);
+            return true;
+        }
+
+        private void addScores(Map<Long, Float> scores, float factor, Map<Long, Float> candidates) {
+            for (int i = 0; i < size; i++) {
+                if (candidates == null || candidates.containsKey(ids[i]))
+                    scores.merge(ids[i], weights[i] * factor, Math::max);
+            }
+        }
+    }
+}
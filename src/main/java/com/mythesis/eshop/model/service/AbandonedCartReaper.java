@@ -0,0 +1,117 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.model.repository.CartItemRepository;
+import com.mythesis.eshop.model.repository.CartRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+ * Deletes carts nobody has touched for maxIdle (by Cart.updatedAt), together with their items.
+ * Each chunk is its own short transaction: the chunk's carts are locked and re-checked, their items and
+ * then the carts go in two bulk deletes, and the reaper pauses before the next chunk so other work gets the locks.
+ */
+@Component
+public class AbandonedCartReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(AbandonedCartReaper.class);
+
+    private boolean enabled;
+    private Duration maxIdle;
+    private int chunkSize;
+    private Duration pause;
+    private CartRepository cartRepository;
+    private CartItemRepository cartItemRepository;
+    private TransactionTemplate transactionTemplate;
+
+    private final Counter cartsReclaimed = Counter.builder("cart.reaper.reclaimed")
+            .tag("table", "e_cart")
+            .register(Metrics.globalRegistry);
+    private final Counter itemsReclaimed = Counter.builder("cart.reaper.reclaimed")
+            .tag("table", "e_cart_item")
+            .register(Metrics.globalRegistry);
+    private final Timer chunkTimer = Timer.builder("cart.reaper.chunk")
+            .description("Time spent deleting one chunk of abandoned carts")
+            .register(Metrics.globalRegistry);
+
+    @Autowired
+    public AbandonedCartReaper(@Value("${eshop.cart-reaper.enabled:true}") boolean enabled,
+                               @Value("${eshop.cart-reaper.max-idle:P30D}") Duration maxIdle,
+                               @Value("${eshop.cart-reaper.chunk-size:500}") int chunkSize,
+                               @Value("${eshop.cart-reaper.pause:PT0.2S}") Duration pause,
+                               CartRepository cartRepository,
+                               CartItemRepository cartItemRepository,
+                               PlatformTransactionManager transactionManager) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("eshop.cart-reaper.chunk-size must be positive");
+
+        this.enabled = enabled;
+        this.maxIdle = maxIdle;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${eshop.cart-reaper.interval-ms:3600000}",
+               fixedDelayString = "${eshop.cart-reaper.interval-ms:3600000}")
+    public void scheduledRun() {
+        if (enabled)
+            reapIdleCarts();
+    }
+
+    /* Returns the number of carts deleted. Stops early when interrupted. */
+    public int reapIdleCarts() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(maxIdle);
+        int reaped = 0;
+        while (true) {
+            List<Long> cartIds = cartRepository.findIdsIdleSince(cutoff, PageRequest.of(0, chunkSize));
+            if (cartIds.isEmpty())
+                break;
+
+            int deleted = chunkTimer.record(() -> transactionTemplate.execute(status -> deleteChunk(cartIds, cutoff)));
+            reaped += deleted;
+            /* Carts skipped because they were touched meanwhile are newer than the cutoff and not picked again. */
+            if (cartIds.size() < chunkSize || !pauseBetweenChunks())
+                break;
+        }
+        if (reaped > 0)
+            log.info("Deleted {} carts idle since {}", reaped, cutoff);
+        return reaped;
+    }
+
+    private int deleteChunk(List<Long> cartIds, LocalDateTime cutoff) {
+        List<Long> idle = cartRepository.lockIdleByIds(cartIds, cutoff);
+        if (idle.isEmpty())
+            return 0;
+
+        itemsReclaimed.increment(cartItemRepository.deleteAllByCartIdIn(idle));
+        int deleted = cartRepository.deleteAllByIdIn(idle);
+        cartsReclaimed.increment(deleted);
+        return deleted;
+    }
+
+    private boolean pauseBetweenChunks() {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.dto.CheckoutStatusDTO;
+import com.mythesis.eshop.exception.ServiceOverloadedException;
+import com.mythesis.eshop.model.entity.Order;
+import com.mythesis.eshop.util.ExpiringCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Queued checkout: submit() only records the job and returns its id, and a worker pool runs the stages.
+ * ORDER, PAYMENT and STOCK run in CartItemService's single purchase transaction, SHIPPING after it commits.
+ * A stage failing with a transient database error is retried with exponential backoff up to maxAttempts;
+ * business failures (balance, stock, shipping limits) fail the job at once.
+ */
+@Service
+public class AsyncCheckoutService {
+
+    private CartItemService cartItemService;
+    private ShippingService shippingService;
+    private ScheduledThreadPoolExecutor workers;
+    private int queueCapacity;
+    private int maxAttempts;
+    private long retryBackoffMillis;
+
+    private ExpiringCache<String, CheckoutStatusDTO> statuses;
+    private ExpiringCache<String, String> checkoutIdsByKey;
+    private final Object submitLock = new Object();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Timer completedTimer = Timer.builder("checkout.async")
+            .description("Time from submitting a checkout until it finished")
+            .tag("outcome", "completed")
+            .register(Metrics.globalRegistry);
+    private final Timer failedTimer = Timer.builder("checkout.async")
+            .description("Time from submitting a checkout until it finished")
+            .tag("outcome", "failed")
+            .register(Metrics.globalRegistry);
+    private final Counter retries = Counter.builder("checkout.async.retries")
+            .register(Metrics.globalRegistry);
+
+    @Autowired
+    public AsyncCheckoutService(CartItemService cartItemService,
+                                ShippingService shippingService,
+                                @Value("${eshop.checkout.workers:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int workers,
+                                @Value("${eshop.checkout.queue-capacity:1000}") int queueCapacity,
+                                @Value("${eshop.checkout.max-attempts:3}") int maxAttempts,
+                                @Value("${eshop.checkout.retry-backoff:PT0.1S}") Duration retryBackoff,
+                                @Value("${eshop.checkout.status-ttl:PT1H}") Duration statusTtl) {
+        this.cartItemService = cartItemService;
+        this.shippingService = shippingService;
+        this.workers = new ScheduledThreadPoolExecutor(workers, daemonThreads());
+        this.queueCapacity = queueCapacity;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        /* Sized well above the queue so a job still running is never evicted. */
+        this.statuses = new ExpiringCache<>("checkouts", Math.max(100_000, queueCapacity * 10), statusTtl);
+        this.checkoutIdsByKey = new ExpiringCache<>("checkoutKeys", Math.max(100_000, queueCapacity * 10), statusTtl);
+
+        Gauge.builder("checkout.async.pending", pending, AtomicInteger::get)
+                .register(Metrics.globalRegistry);
+    }
+
+    /* A repeated Idempotency-Key for the same cart returns the existing checkout instead of queueing another. */
+    public CheckoutStatusDTO submit(Long cartId, String idempotencyKey){
+        if (idempotencyKey == null || idempotencyKey.isBlank() || idempotencyKey.length() > CheckoutService.MAX_IDEMPOTENCY_KEY_LENGTH)
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + CheckoutService.MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+
+        String key = cartId + ":" + idempotencyKey;
+        synchronized (submitLock) {
+            String existingId = checkoutIdsByKey.get(key);
+            if (existingId != null) {
+                CheckoutStatusDTO existing = statuses.get(existingId);
+                if (existing != null)
+                    return existing;
+            }
+
+            if (pending.incrementAndGet() > queueCapacity) {
+                pending.decrementAndGet();
+                throw new ServiceOverloadedException("Too many checkouts in progress, try again shortly");
+            }
+
+            CheckoutJob job = new CheckoutJob(UUID.randomUUID().toString(), cartId);
+            checkoutIdsByKey.put(key, job.id);
+            CheckoutStatusDTO status = publish(job);
+            workers.execute(() -> run(job));
+            return status;
+        }
+    }
+
+    public CheckoutStatusDTO retrieveStatus(String checkoutId){
+        CheckoutStatusDTO status = statuses.get(checkoutId);
+        if (status == null)
+            throw new NoSuchElementException("No such Checkout");
+        return status;
+    }
+
+    public int pendingCount(){
+        return pending.get();
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        workers.shutdownNow();
+    }
+
+    private void run(CheckoutJob job){
+        job.state = CheckoutStatusDTO.State.PROCESSING;
+        job.attempts++;
+        try {
+            if (job.order == null) {
+                job.order = cartItemService.purchase(job.cartId, stage -> {
+                    job.stage = stage;
+                    publish(job);
+                });
+                job.attempts = 1;
+            }
+
+            job.stage = CheckoutStage.SHIPPING;
+            publish(job);
+            shippingService.ship(job.order);
+
+            job.state = CheckoutStatusDTO.State.COMPLETED;
+            job.stage = null;
+            finish(job, completedTimer);
+        } catch (RuntimeException ex) {
+            if (isTransient(ex) && job.attempts < maxAttempts) {
+                retries.increment();
+                publish(job);
+                long backoff = retryBackoffMillis << (job.attempts - 1);
+                workers.schedule(() -> run(job), backoff, TimeUnit.MILLISECONDS);
+                return;
+            }
+            /* Shipping limits are checked inside the purchase, so an order that cannot ship fails before payment. */
+            job.state = CheckoutStatusDTO.State.FAILED;
+            job.error = ex.getMessage();
+            finish(job, failedTimer);
+        }
+    }
+
+    private void finish(CheckoutJob job, Timer timer){
+        pending.decrementAndGet();
+        timer.record(System.nanoTime() - job.submittedAt, TimeUnit.NANOSECONDS);
+        publish(job);
+    }
+
+    private CheckoutStatusDTO publish(CheckoutJob job){
+        CheckoutStatusDTO status = job.toStatus();
+        statuses.put(job.id, status);
+        return status;
+    }
+
+    private static boolean isTransient(RuntimeException ex){
+        return ex instanceof TransientDataAccessException
+                || ex instanceof RecoverableDataAccessException
+                || ex instanceof CannotCreateTransactionException;
+    }
+
+    private static ThreadFactory daemonThreads(){
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "checkout-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /* Only touched by one worker at a time; retries are handed over through the executor. */
+    private static final class CheckoutJob {
+        private final String id;
+        private final Long cartId;
+        private final long submittedAt = System.nanoTime();
+        private CheckoutStatusDTO.State state = CheckoutStatusDTO.State.QUEUED;
+        private CheckoutStage stage;
+        private int attempts;
+        private Order order;
+        private String error;
+
+        private CheckoutJob(String id, Long cartId) {
+            this.id = id;
+            this.cartId = cartId;
+        }
+
+        private CheckoutStatusDTO toStatus(){
+            CheckoutStatusDTO status = new CheckoutStatusDTO();
+            status.setId(id);
+            status.setCartId(cartId);
+            status.setState(state);
+            status.setStage(stage);
+            status.setAttempts(attempts);
+            status.setError(error);
+            if (order != null) {
+                status.setOrderId(order.getId());
+                status.setTotal(order.getTotal());
+            }
+            return status;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.mythesis.eshop.model.service;
 
+import com.mythesis.eshop.dto.CartItemOperationDTO;
 import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.model.inventory.StockHoldRegistry;
 import com.mythesis.eshop.model.repository.CartItemRepository;
 import com.mythesis.eshop.util.CartItemMapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,13 +14,21 @@ import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class CartItemService {
 
+    public static final int MAX_BATCH_OPERATIONS = 500;
+
     private CartItemRepository cartItemRepository;
     private CartItemMapper cartItemMapper;
     private Validator validator;
@@ -28,6 +38,7 @@ public class CartItemService {
     private ShippingService shippingService;
     private UserService userService;
     private ProductService productService;
+    private StockHoldRegistry stockHolds;
 
     @Autowired
     public CartItemService(CartItemRepository cartItemRepository,
@@ -38,6 +49,7 @@ public class CartItemService {
                            ShippingService shippingService,
                            UserService userService,
                            ProductService productService,
+                           StockHoldRegistry stockHolds,
                            Validator validator) {
         this.cartItemRepository = cartItemRepository;
         this.cartItemMapper = cartItemMapper;
@@ -47,6 +59,7 @@ public class CartItemService {
         this.shippingService = shippingService;
         this.userService = userService;
         this.productService = productService;
+        this.stockHolds = stockHolds;
         this.validator = validator;
     }
 
@@ -68,18 +81,47 @@ public class CartItemService {
 
     }
 
+    /*
+     * With stock holds enabled the quantity is held for the cart; if it cannot be, the item is not added.
+     * The cart's total and item count move with every add, update and delete.
+     * Adding a product the cart already has raises that item's quantity instead of adding a second row.
+     */
+    @Transactional
     public CartItem add(CartItem cartItem){
 
         Set<ConstraintViolation<CartItem>> violations = validator.validate(cartItem);
         if (!violations.isEmpty())
             throw new ConstraintViolationException("Validation errors",violations);
 
-        return cartItemRepository.save(cartItem);
+        Long cartId = cartItem.getCart().getId();
+        Long productId = cartItem.getProduct().getId();
+        cartService.retrieveByIdForUpdate(cartId);
+
+        CartItem savedItem;
+        if (cartItemRepository.incrementQuantity(cartId, productId, cartItem.getQuantity()) > 0)
+            savedItem = cartItemRepository.findByCartIdAndProductId(cartId, productId).get();
+        else
+            savedItem = cartItemRepository.save(cartItem);
+        cartService.addToTotals(cartId, productId, cartItem.getQuantity());
+        holdStock(savedItem);
+        return savedItem;
 
     }
 
+    @Transactional
     public CartItem update(Long cartItemId, CartItem cartItem){
         CartItem retrieved = retrieveById(cartItemId);
+        Long previousCartId = retrieved.getCart().getId();
+        Long previousProductId = retrieved.getProduct().getId();
+        int previousQuantity = retrieved.getQuantity();
+        Long targetCartId = cartItem.getCart() != null ? cartItem.getCart().getId() : previousCartId;
+        Long targetProductId = cartItem.getProduct() != null ? cartItem.getProduct().getId() : previousProductId;
+        /* Checked before the copy, so no flush writes a duplicate (cart, product) row first. */
+        if (!targetCartId.equals(previousCartId) || !targetProductId.equals(previousProductId)) {
+            cartService.retrieveByIdForUpdate(targetCartId);
+            if (cartItemRepository.findByCartIdAndProductId(targetCartId, targetProductId).isPresent())
+                throw new IllegalArgumentException("Product is already in the Cart");
+        }
         cartItemMapper.copyProperties(cartItem, retrieved);
 
         Set<ConstraintViolation<CartItem>> violations = validator.validate(retrieved);
@@ -87,20 +129,185 @@ public class CartItemService {
         if (!violations.isEmpty())
             throw new ConstraintViolationException("Validation errors",violations);
 
-        return cartItemRepository.save(retrieved);
+        CartItem updatedItem = cartItemRepository.save(retrieved);
+        Long cartId = updatedItem.getCart().getId();
+        Long productId = updatedItem.getProduct().getId();
+        if (cartId.equals(previousCartId) && productId.equals(previousProductId)) {
+            cartService.addToTotals(cartId, productId, updatedItem.getQuantity() - previousQuantity);
+        } else {
+            cartService.addToTotals(previousCartId, previousProductId, -previousQuantity);
+            cartService.addToTotals(cartId, productId, updatedItem.getQuantity());
+        }
+        holdStock(updatedItem);
+        return updatedItem;
     }
 
+    @Transactional
     public void deleteById(Long cartItemId){
+        CartItem cartItem = cartItemRepository.findById(cartItemId)
+                .orElseThrow(() -> new NoSuchElementException("Cart item does not exist"));
         try {
             cartItemRepository.deleteById(cartItemId);
         }catch (EmptyResultDataAccessException ex){
             throw new NoSuchElementException("Cart item does not exist");
         }
+        cartService.addToTotals(cartItem.getCart().getId(), cartItem.getProduct().getId(), -cartItem.getQuantity());
+        stockHolds.releaseAfterCommit(List.of(cartItemId));
+    }
+
+    /*
+     * Applies the operations in order, all or nothing. The cart's items and every referenced product are read
+     * with one query each. The result is planned first and then written as one delete, one batch of updates
+     * and one batch of inserts, in that order, so no write meets a (cart, product) row that a later one removes.
+     * The cart's totals are updated once at the end.
+     */
+    @Transactional
+    public void applyOperations(Long cartId, List<CartItemOperationDTO> operations){
+        if (operations.isEmpty() || operations.size() > MAX_BATCH_OPERATIONS)
+            throw new IllegalArgumentException("operations must be between 1 and " + MAX_BATCH_OPERATIONS);
+        operations.forEach(this::checkOperation);
+
+        Cart cart = cartService.retrieveByIdForUpdate(cartId);
+        Map<Long, CartItem> items = retrieveAllByCartId(cartId)
+                .stream()
+                .collect(Collectors.toMap(CartItem::getId, Function.identity()));
+        Map<Long, Product> products = productService.retrieveAllById(operations.stream()
+                .filter(operation -> operation.getProductId() != null)
+                .map(CartItemOperationDTO::getProductId)
+                .collect(Collectors.toSet()));
+
+        /* Planned state per item; managed items are left untouched until the removals are written. */
+        Map<CartItem, Product> productOf = new IdentityHashMap<>();
+        Map<CartItem, Integer> quantityOf = new IdentityHashMap<>();
+        Map<Long, CartItem> itemsByProduct = new HashMap<>();
+        for (CartItem cartItem : items.values()) {
+            productOf.put(cartItem, cartItem.getProduct());
+            quantityOf.put(cartItem, cartItem.getQuantity());
+            itemsByProduct.put(cartItem.getProduct().getId(), cartItem);
+        }
+        double amountBefore = amountOf(productOf, quantityOf);
+        int quantityBefore = quantityOf.values().stream().mapToInt(Integer::intValue).sum();
+
+        List<CartItem> added = new ArrayList<>();
+        List<CartItem> removed = new ArrayList<>();
+        for (CartItemOperationDTO operation : operations) {
+            if (operation.getType() == CartItemOperationDTO.Type.ADD) {
+                /* Adding a product the cart has grows that item. */
+                CartItem cartItem = itemsByProduct.get(operation.getProductId());
+                if (cartItem == null) {
+                    cartItem = new CartItem(cart, products.get(operation.getProductId()), 0);
+                    itemsByProduct.put(operation.getProductId(), cartItem);
+                    productOf.put(cartItem, cartItem.getProduct());
+                    quantityOf.put(cartItem, 0);
+                    added.add(cartItem);
+                }
+                quantityOf.merge(cartItem, operation.getQuantity(), Integer::sum);
+                continue;
+            }
+
+            CartItem cartItem = items.get(operation.getCartItemId());
+            if (cartItem == null)
+                throw new NoSuchElementException("No such Cart item");
+            Long productId = productOf.get(cartItem).getId();
+            if (operation.getType() == CartItemOperationDTO.Type.REMOVE) {
+                items.remove(operation.getCartItemId());
+                itemsByProduct.remove(productId);
+                productOf.remove(cartItem);
+                quantityOf.remove(cartItem);
+                removed.add(cartItem);
+                continue;
+            }
+            if (operation.getProductId() != null && !operation.getProductId().equals(productId)) {
+                if (itemsByProduct.containsKey(operation.getProductId()))
+                    throw new IllegalArgumentException("Product is already in the Cart");
+                itemsByProduct.remove(productId);
+                itemsByProduct.put(operation.getProductId(), cartItem);
+                productOf.put(cartItem, products.get(operation.getProductId()));
+            }
+            if (operation.getQuantity() != null)
+                quantityOf.put(cartItem, operation.getQuantity());
+        }
+
+        List<CartItem> changed = new ArrayList<>();
+        for (CartItem cartItem : productOf.keySet()) {
+            if (cartItem.getId() != null && cartItem.getProduct() == productOf.get(cartItem)
+                    && cartItem.getQuantity().equals(quantityOf.get(cartItem)))
+                continue;
+            CartItem planned = new CartItem(cart, productOf.get(cartItem), quantityOf.get(cartItem));
+            Set<ConstraintViolation<CartItem>> violations = validator.validate(planned);
+            if (!violations.isEmpty())
+                throw new ConstraintViolationException("Validation errors",violations);
+            changed.add(cartItem);
+        }
+
+        cartItemRepository.deleteAllInBatch(removed);
+        for (CartItem cartItem : changed) {
+            cartItem.setProduct(productOf.get(cartItem));
+            cartItem.setQuantity(quantityOf.get(cartItem));
+        }
+        cartItemRepository.flush();
+        cartItemRepository.saveAll(added);
+        cartService.addAmountToTotals(cartId, amountOf(productOf, quantityOf) - amountBefore,
+                quantityOf.values().stream().mapToInt(Integer::intValue).sum() - quantityBefore);
+
+        stockHolds.releaseAfterCommit(removed.stream().map(CartItem::getId).collect(Collectors.toList()));
+        /* If the batch rolls back, the changed items get their previous holds back. */
+        stockHolds.holdAll(changed);
+    }
+
+    private double amountOf(Map<CartItem, Product> productOf, Map<CartItem, Integer> quantityOf){
+        double amount = 0;
+        for (Map.Entry<CartItem, Product> entry : productOf.entrySet()) {
+            amount += entry.getValue().getPrice() * quantityOf.get(entry.getKey());
+        }
+        return amount;
+    }
+
+    private void checkOperation(CartItemOperationDTO operation){
+        if (operation.getType() == null)
+            throw new IllegalArgumentException("type must not be blank");
+        if (operation.getType() == CartItemOperationDTO.Type.ADD && operation.getProductId() == null)
+            throw new IllegalArgumentException("productId must not be blank");
+        if (operation.getType() == CartItemOperationDTO.Type.ADD && operation.getQuantity() == null)
+            throw new IllegalArgumentException("quantity must not be blank");
+        if (operation.getType() != CartItemOperationDTO.Type.ADD && operation.getCartItemId() == null)
+            throw new IllegalArgumentException("cartItemId must not be blank");
+        if (operation.getType() != CartItemOperationDTO.Type.REMOVE
+                && operation.getQuantity() != null && operation.getQuantity() < 1)
+            throw new IllegalArgumentException("quantity must be positive");
+    }
+
+    private void holdStock(CartItem cartItem){
+        if (stockHolds.isEnabled())
+            stockHolds.hold(cartItem.getId(), cartItem.getProduct().getId(), cartItem.getQuantity());
     }
 
-    /* The order of the transactions does not matter. All of them must be completed or not regardless which is first, second etc.*/
     @Transactional
     public Boolean purchaseAllInCartItems(Long cartId){
+        purchase(cartId);
+        return true;
+    }
+
+    @Transactional
+    public Order purchase(Long cartId){
+        return placeOrder(cartId, stage -> { }, false);
+    }
+
+    /*
+     * Purchase for an order that is shipped afterwards: the shipping limits are checked before payment,
+     * so an order that cannot be shipped is never charged.
+     */
+    @Transactional
+    public Order purchase(Long cartId, Consumer<CheckoutStage> progress){
+        return placeOrder(cartId, progress, true);
+    }
+
+    /*
+     * The order of the transactions does not matter. All of them must be completed or not regardless which is first, second etc.
+     * progress is told which stage is starting; a failure in any stage rolls back the earlier ones.
+     */
+    private Order placeOrder(Long cartId, Consumer<CheckoutStage> progress, boolean checkShipping){
+        progress.accept(CheckoutStage.ORDER);
         User user = cartService.retrieveById(cartId).getUser();
         List<CartItem> cartItemList = this.retrieveAllByCartId(cartId);
 
@@ -116,18 +323,25 @@ public class CartItemService {
             );
          //   total += ci.getProduct().getPrice();
         }
-        Double total = 0.0;
-        total = productService.getTotalPriceOfProducts(cartItemList);
+        /* retrieveAllByCartId already fetched the products, so the prices are read from them without another query. */
+        Map<Long, Product> products = cartItemList.stream()
+                .map(CartItem::getProduct)
+                .collect(Collectors.toMap(Product::getId, Function.identity(), (first, second) -> first));
+        Double total = productService.getTotalPriceOfProducts(cartItemList, products);
         order.setTotal(total);
         order.setOrderItems(orderItemList);
+        if (checkShipping)
+            shippingService.checkShippable(order);
 
-        orderService.createOrder(order);
+        Order createdOrder = orderService.createOrder(order);
+        progress.accept(CheckoutStage.PAYMENT);
         userService.deductAmount(user.getId(), total);
+        progress.accept(CheckoutStage.STOCK);
         productService.updateProductStock(cartItemList);
 
        // paymentService.pay(user.getId(), total);
       //  shippingService.ship(order);
 
-        return true;
+        return createdOrder;
     }
 }
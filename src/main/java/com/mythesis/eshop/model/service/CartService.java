@@ -4,8 +4,11 @@ import com.mythesis.eshop.model.entity.*;
 import com.mythesis.eshop.model.repository.CartRepository;
 import com.mythesis.eshop.util.CartMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
@@ -49,7 +52,21 @@ public class CartService {
         return  cart;
     }
 
+    /* Must run inside a transaction; the cart row stays locked until it ends. */
+    public Cart retrieveByIdForUpdate (Long cartId){
+        return cartRepository.findByIdForUpdate(cartId)
+                .orElseThrow(() -> new NoSuchElementException("No such Cart"));
+    }
+
+    public Cart retrieveViewById (Long cartId){
+        return cartRepository.findViewById(cartId)
+                .orElseThrow(() -> new NoSuchElementException("No such Cart"));
+    }
+
+    /* A new cart has no items, whatever total the client sent. */
     public Cart add(Cart cart){
+        cart.setTotal(0.0);
+        cart.setItemCount(0);
 
         Set<ConstraintViolation<Cart>> violations = validator.validate(cart);
         if (!violations.isEmpty())
@@ -71,6 +88,33 @@ public class CartService {
         return cartRepository.save(retrieved);
     }
 
+    /* quantity is negative when items leave the cart. */
+    @Transactional
+    public void addToTotals(Long cartId, Long productId, int quantity){
+        if (quantity != 0)
+            cartRepository.addToTotals(cartId, productId, quantity);
+    }
+
+    /* The cart's persistence context is cleared afterwards, so the cart is read back with its new totals. */
+    @Transactional
+    public void addAmountToTotals(Long cartId, double amount, int quantity){
+        if (amount != 0 || quantity != 0)
+            cartRepository.addAmountToTotals(cartId, amount, quantity);
+    }
+
+    /* Called with the price difference when a product's price changes, for every cart holding it. */
+    @Transactional
+    public void repriceProduct(Long productId, double priceDelta){
+        if (priceDelta != 0)
+            cartRepository.repriceProduct(productId, priceDelta);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void recalculateUnmaintainedTotals(){
+        cartRepository.recalculateUnmaintainedTotals();
+    }
+
     public void deleteById(Long cartId){
         try {
             cartRepository.deleteById(cartId);
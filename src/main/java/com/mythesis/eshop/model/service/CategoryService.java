@@ -1,5 +1,6 @@
 package com.mythesis.eshop.model.service;
 
+import com.mythesis.eshop.model.cache.ProductCatalogCache;
 import com.mythesis.eshop.model.entity.Category;
 import com.mythesis.eshop.model.repository.CategoryRepository;
 import com.mythesis.eshop.util.CategoryMapper;
@@ -10,9 +11,13 @@ import org.springframework.stereotype.Service;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class CategoryService {
@@ -20,14 +25,17 @@ public class CategoryService {
     private CategoryRepository categoryRepository;
     private Validator validator;
     private CategoryMapper categoryMapper;
+    private ProductCatalogCache catalogCache;
 
     @Autowired
     public CategoryService(CategoryRepository categoryRepository,
                            Validator validator,
-                           CategoryMapper categoryMapper) {
+                           CategoryMapper categoryMapper,
+                           ProductCatalogCache catalogCache) {
         this.categoryRepository = categoryRepository;
         this.validator = validator;
         this.categoryMapper = categoryMapper;
+        this.catalogCache = catalogCache;
     }
 
     public List<Category> retrieveAll (){
@@ -46,6 +54,13 @@ public class CategoryService {
 
     }
 
+    /* Categories with the given ids, keyed by id; unknown ids are simply absent. */
+    public Map<Long, Category> retrieveAllById(Collection<Long> categoryIds){
+        return categoryRepository.findAllById(categoryIds)
+                .stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+    }
+
     public Category add(Category category){
 
         Set<ConstraintViolation<Category>> violations = validator.validate(category);
@@ -65,7 +80,11 @@ public class CategoryService {
         if (!violations.isEmpty())
             throw new ConstraintViolationException("Validation errors",violations);
 
-        return categoryRepository.save(retrieved);
+        Category updated = categoryRepository.save(retrieved);
+        /* Cached products carry the category title, and a category can back any number of them. */
+        catalogCache.invalidateAll();
+
+        return updated;
     }
 
     public void deleteById(Long categoryId){
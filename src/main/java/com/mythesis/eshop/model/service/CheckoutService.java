@@ -0,0 +1,93 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.dto.OrderInfoDTO;
+import com.mythesis.eshop.util.ExpiringCache;
+import com.mythesis.eshop.util.OrderMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Purchases keyed by a client supplied Idempotency-Key.
+ * A completed purchase is remembered per cart and key for the store's TTL, and a retry gets the original order back
+ * without touching the database. A retry that arrives while the first attempt is still running waits for its outcome.
+ * Failed purchases roll back and are not remembered, so they can be retried with the same key.
+ */
+@Service
+public class CheckoutService {
+
+    public static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private CartItemService cartItemService;
+    private OrderMapper orderMapper;
+    private ExpiringCache<String, OrderInfoDTO> completedPurchases;
+    private final ConcurrentMap<String, CompletableFuture<OrderInfoDTO>> inFlightPurchases = new ConcurrentHashMap<>();
+    private final Counter joinedPurchases = Counter.builder("checkout.idempotent.joined")
+            .description("Retries that waited for an identical purchase still in progress")
+            .register(Metrics.globalRegistry);
+
+    @Autowired
+    public CheckoutService(CartItemService cartItemService,
+                           OrderMapper orderMapper,
+                           @Value("${eshop.purchase-idempotency.max-size:100000}") int maxSize,
+                           @Value("${eshop.purchase-idempotency.ttl:PT24H}") Duration ttl) {
+        this.cartItemService = cartItemService;
+        this.orderMapper = orderMapper;
+        this.completedPurchases = new ExpiringCache<>("purchases", maxSize, ttl);
+    }
+
+    public OrderInfoDTO purchase(Long cartId, String idempotencyKey){
+        if (idempotencyKey == null || idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+
+        String key = cartId + ":" + idempotencyKey;
+        OrderInfoDTO completed = completedPurchases.get(key);
+        if (completed != null)
+            return completed;
+
+        CompletableFuture<OrderInfoDTO> attempt = new CompletableFuture<>();
+        CompletableFuture<OrderInfoDTO> running = inFlightPurchases.putIfAbsent(key, attempt);
+        if (running != null) {
+            joinedPurchases.increment();
+            return await(running);
+        }
+
+        try {
+            /* The first attempt may have finished between the lookup above and claiming the key. */
+            completed = completedPurchases.get(key);
+            if (completed == null) {
+                completed = orderMapper.toOrderInfoDto(cartItemService.purchase(cartId));
+                completedPurchases.put(key, completed);
+            }
+            attempt.complete(completed);
+            return completed;
+        } catch (RuntimeException ex) {
+            attempt.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlightPurchases.remove(key, attempt);
+        }
+    }
+
+    public long replayCount(){
+        return completedPurchases.hitCount();
+    }
+
+    private static OrderInfoDTO await(CompletableFuture<OrderInfoDTO> running){
+        try {
+            return running.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.mythesis.eshop.model.service;
+
+/* Stages of a checkout in the order they run. ORDER, PAYMENT and STOCK share one transaction. */
+public enum CheckoutStage {
+    ORDER,
+    PAYMENT,
+    STOCK,
+    SHIPPING
+}
@@ -3,10 +3,16 @@ package com.mythesis.eshop.model.service;
 import com.mythesis.eshop.model.entity.OrderItem;
 import com.mythesis.eshop.model.repository.OrderItemRepository;
 import com.mythesis.eshop.util.OrderItemMapper;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
@@ -20,14 +26,33 @@ public class OrderItemService {
     private OrderItemRepository orderItemRepository;
     private Validator validator;
     private OrderItemMapper orderItemMapper;
+    private EntityManager entityManager;
 
     @Autowired
     public OrderItemService(OrderItemRepository orderItemRepository,
                             Validator validator,
-                            OrderItemMapper orderItemMapper) {
+                            OrderItemMapper orderItemMapper,
+                            EntityManager entityManager) {
         this.orderItemRepository = orderItemRepository;
         this.validator = validator;
         this.orderItemMapper = orderItemMapper;
+        this.entityManager = entityManager;
+    }
+
+    /*
+     * MySQL has no sequences, so e_order_item_seq is a table there, and ddl-auto creates it at 1 even when
+     * e_order_item already holds ids taken from hibernate_sequence. It is moved past them before orders come in.
+     * Databases with native sequences only back the in-memory tests, which always start empty.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void seedIdSequence(){
+        Dialect dialect = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect();
+        if (!dialect.supportsSequences())
+            orderItemRepository.seedIdSequence();
     }
 
     public List<OrderItem> retrieveAll (){
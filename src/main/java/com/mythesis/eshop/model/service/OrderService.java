@@ -1,6 +1,8 @@
 package com.mythesis.eshop.model.service;
 
+import com.mythesis.eshop.dto.OrderStatsDTO;
 import com.mythesis.eshop.model.entity.Order;
+import com.mythesis.eshop.model.repository.OrderItemRepository;
 import com.mythesis.eshop.model.repository.OrderRepository;
 import com.mythesis.eshop.util.OrderMapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,20 +13,26 @@ import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
 
+import java.time.LocalDate;
 import java.util.*;
 
 @Service
 public class OrderService {
 
+    public static final int MAX_STATS_DAYS = 366;
+
     private OrderRepository orderRepository;
+    private OrderItemRepository orderItemRepository;
     private Validator validator;
     private OrderMapper orderMapper;
 
     @Autowired
     public OrderService(OrderRepository orderRepository,
+                        OrderItemRepository orderItemRepository,
                         Validator validator,
                         OrderMapper orderMapper) {
         this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
         this.validator = validator;
         this.orderMapper = orderMapper;
     }
@@ -80,24 +88,25 @@ public class OrderService {
 
     }
 
-    public void stats(){
-        List<Order> orders = new ArrayList<>();
-        List<Optional<Order>> foundOrders = new ArrayList<>();
+    /* Every figure comes from an SQL aggregate, so the cost does not depend on loading orders into memory. */
+    public OrderStatsDTO stats(Integer days){
+        if (days < 1 || days > MAX_STATS_DAYS)
+            throw new IllegalArgumentException("days must be between 1 and " + MAX_STATS_DAYS);
 
-        for (long i = 0; i < 999999; i++){
-            Order order = new Order();
-            order.setId(i);
-            orders.add(order);
-            foundOrders.add(orderRepository.findById(order.getId()));
+        long orderCount = orderRepository.count();
+        long orderItemCount = orderItemRepository.count();
 
+        Map<LocalDate, Long> ordersPerDay = new LinkedHashMap<>();
+        for (Object[] row : orderRepository.countPerDaySince(LocalDate.now().minusDays(days - 1))) {
+            ordersPerDay.put((LocalDate) row[0], (Long) row[1]);
         }
-        for (Optional<Order> fo : foundOrders){
-            if (fo.isPresent()){
-                orders.remove(fo.get());
-            }
-        }
-
 
+        OrderStatsDTO stats = new OrderStatsDTO();
+        stats.setOrderCount(orderCount);
+        stats.setRevenue(orderRepository.sumTotal());
+        stats.setAverageBasketSize(orderCount == 0 ? 0.0 : (double) orderItemCount / orderCount);
+        stats.setOrdersPerDay(ordersPerDay);
+        return stats;
     }
 
 }
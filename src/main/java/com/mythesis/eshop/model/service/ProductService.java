@@ -1,40 +1,172 @@
 package com.mythesis.eshop.model.service;
 
+import com.mythesis.eshop.dto.PriceBucketDTO;
+import com.mythesis.eshop.dto.ProductEntryDTO;
+import com.mythesis.eshop.dto.ProductFacetsDTO;
+import com.mythesis.eshop.dto.ProductImportErrorDTO;
+import com.mythesis.eshop.dto.ProductImportResultDTO;
+import com.mythesis.eshop.dto.ProductInfoDTO;
+import com.mythesis.eshop.model.cache.ProductCatalogCache;
+import com.mythesis.eshop.model.cache.ProductView;
 import com.mythesis.eshop.model.entity.CartItem;
+import com.mythesis.eshop.model.entity.Category;
 import com.mythesis.eshop.model.entity.Product;
+import com.mythesis.eshop.model.importer.ProductImportRow;
 import com.mythesis.eshop.model.repository.ProductRepository;
+import com.mythesis.eshop.model.inventory.InventoryLedger;
+import com.mythesis.eshop.model.inventory.StockHoldRegistry;
+import com.mythesis.eshop.model.search.ProductFacetIndex;
+import com.mythesis.eshop.model.search.ProductSearchIndex;
 import com.mythesis.eshop.util.ProductMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_SEARCH_RESULTS = 100;
+    public static final int IMPORT_CHUNK_SIZE = 500;
+
     private ProductRepository productRepository;
     private Validator validator;
     private ProductMapper productMapper;
+    private ProductCatalogCache catalogCache;
+    private ProductSearchIndex searchIndex;
+    private ProductFacetIndex facetIndex;
+    private CategoryService categoryService;
+    private InventoryLedger inventoryLedger;
+    private StockHoldRegistry stockHolds;
+    private CartService cartService;
 
     @Autowired
     public ProductService(ProductRepository productRepository,
                           Validator validator,
-                          ProductMapper productMapper) {
+                          ProductMapper productMapper,
+                          ProductCatalogCache catalogCache,
+                          ProductSearchIndex searchIndex,
+                          ProductFacetIndex facetIndex,
+                          CategoryService categoryService,
+                          InventoryLedger inventoryLedger,
+                          StockHoldRegistry stockHolds,
+                          CartService cartService) {
         this.productRepository = productRepository;
         this.validator = validator;
         this.productMapper = productMapper;
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+        this.facetIndex = facetIndex;
+        this.categoryService = categoryService;
+        this.inventoryLedger = inventoryLedger;
+        this.stockHolds = stockHolds;
+        this.cartService = cartService;
     }
 
     public List<Product> retrieveAll(){
         return productRepository.findAll();
     }
 
+    public List<ProductInfoDTO> retrieveAllInfo(){
+        return productRepository.findAllInfo();
+    }
+
+    public List<ProductInfoDTO> retrieveInfoAfter(Long afterId, Integer limit){
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+
+        return productRepository.findAllInfoAfterId(afterId, PageRequest.of(0, limit));
+    }
+
+    public List<ProductInfoDTO> retrieveInfoMatching(Long categoryId, Double minPrice, Double maxPrice,
+                                                     Long afterId, Integer limit){
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        checkPriceRange(minPrice, maxPrice);
+
+        return productRepository.findAllInfoMatching(categoryId, minPrice, maxPrice, afterId, PageRequest.of(0, limit));
+    }
+
+    /*
+     * Counts come from the in-memory facet index, never from COUNT queries.
+     * Each facet ignores its own filter, so the client can show the alternatives to the current selection.
+     */
+    public ProductFacetsDTO retrieveFacets(Long categoryId, Double minPrice, Double maxPrice){
+        checkPriceRange(minPrice, maxPrice);
+
+        long[] bucketCounts = facetIndex.countByPriceBucket(categoryId);
+        double[] boundaries = ProductFacetIndex.PRICE_BOUNDARIES;
+        List<PriceBucketDTO> priceBuckets = new ArrayList<>(bucketCounts.length);
+        for (int i = 0; i < bucketCounts.length; i++) {
+            priceBuckets.add(new PriceBucketDTO(
+                    i == 0 ? 0.0 : boundaries[i - 1],
+                    i == boundaries.length ? null : boundaries[i],
+                    bucketCounts[i]));
+        }
+
+        ProductFacetsDTO facets = new ProductFacetsDTO();
+        facets.setTotal(facetIndex.count(categoryId, minPrice, maxPrice));
+        facets.setCategories(facetIndex.countByCategory(minPrice, maxPrice));
+        facets.setPriceBuckets(priceBuckets);
+        return facets;
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllFacetValues(Consumer<Object[]> consumer){
+        try (Stream<Object[]> rows = productRepository.streamAllFacetValues()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    /* Rows are projections, not entities, so nothing accumulates in the persistence context while scrolling. */
+    @Transactional(readOnly = true)
+    public void streamAllInfo(Consumer<ProductInfoDTO> consumer){
+        try (Stream<ProductInfoDTO> products = productRepository.streamAllInfo()) {
+            products.forEach(consumer);
+        }
+    }
+
+    /* Ranking comes from the in-memory index; the hits are then loaded with a single projection query. */
+    public List<ProductInfoDTO> search(String query, Integer limit){
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SEARCH_RESULTS);
+
+        List<Long> productIds = searchIndex.search(query, limit);
+        if (productIds.isEmpty())
+            return Collections.emptyList();
+
+        Map<Long, ProductInfoDTO> products = productRepository.findAllInfoByIdIn(productIds)
+                .stream()
+                .collect(Collectors.toMap(ProductInfoDTO::getId, Function.identity()));
+
+        return productIds.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     public List<Product> retrieveAllOrderedByUser(Long userId){
         return productRepository.findAllOrderedByUserId(userId);
     }
@@ -52,6 +184,15 @@ public class ProductService {
         return product;
     }
 
+    public Product retrieveByIdForUpdate (Long productId){
+        return productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new NoSuchElementException("No such Product"));
+    }
+
+    public ProductView retrieveViewById (Long productId){
+        return catalogCache.get(productId, id -> ProductView.of(retrieveById(id)));
+    }
+
     public Product add (Product product){
 
         Set<ConstraintViolation<Product>> violations = validator.validate(product);
@@ -63,16 +204,50 @@ public class ProductService {
 
 
         Product savedProduct = productRepository.save(product);
+        indexProduct(savedProduct);
 
         return savedProduct;
     }
 
+    /*
+     * Imports the rows chunk by chunk. Each chunk resolves its categories and SKUs with one query apiece
+     * and is inserted with JDBC batching in its own transaction; rejected rows are reported, not fatal.
+     */
+    public ProductImportResultDTO importProducts(Iterator<ProductImportRow> rows){
+        ProductImportResultDTO result = new ProductImportResultDTO();
+
+        List<ProductImportRow> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                importChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            importChunk(chunk, result);
+
+        return result;
+    }
+
+    /* One transaction, so carts are repriced under the same product row lock that the new price is written with. */
+    @Transactional
     public Product update (Long productId, Product product){
 
         if (skuExists(product.getSku()))
             throw new IllegalArgumentException("SKU already exists");
 
-        Product retrievedProd = retrieveById(productId);
+        /* A tracked product's row must not be rewritten while the ledger flush is decrementing it. */
+        if (inventoryLedger.isTracked(productId))
+            return inventoryLedger.withFlushPaused(() -> applyUpdate(productId, product));
+        return applyUpdate(productId, product);
+    }
+
+    /* The row is locked while read, so in_stock is written back as current and no reservation is undone. */
+    private Product applyUpdate(Long productId, Product product){
+        Product retrievedProd = retrieveByIdForUpdate(productId);
+        Integer previousStock = retrievedProd.getInStock();
+        Double previousPrice = retrievedProd.getPrice();
         productMapper.copyProperties(product, retrievedProd);
 
         Set<ConstraintViolation<Product>> violations = validator.validate(retrievedProd);
@@ -80,6 +255,12 @@ public class ProductService {
             throw new ConstraintViolationException("Validation errors",violations);
 
         Product updatedProduct = productRepository.save(retrievedProd);
+        if (previousStock != null && updatedProduct.getInStock() != null)
+            inventoryLedger.adjust(productId, updatedProduct.getInStock() - previousStock);
+        if (previousPrice != null && !previousPrice.equals(updatedProduct.getPrice()))
+            cartService.repriceProduct(productId, updatedProduct.getPrice() - previousPrice);
+        catalogCache.invalidate(productId);
+        indexProduct(updatedProduct);
 
         return updatedProduct;
     }
@@ -89,35 +270,192 @@ public class ProductService {
         }catch (EmptyResultDataAccessException ex){
             throw new NoSuchElementException("Product does not exist");
         }
+        catalogCache.invalidate(productId);
+        searchIndex.remove(productId);
+        facetIndex.remove(productId);
+        inventoryLedger.untrack(productId);
     }
 
     public boolean skuExists(String sku){
         return productRepository.findBySku(sku).isPresent();
     }
 
+    /* One IN query for all the ids; fails if any of them is not a product. */
+    public Map<Long, Product> retrieveAllById(Collection<Long> productIds) {
+        Map<Long, Product> products = productRepository.findAllById(productIds)
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        if (products.size() < new HashSet<>(productIds).size())
+            throw new NoSuchElementException("No such Product");
+        return products;
+    }
+
+    /* Loads every product referenced by the cart items with a single IN query. */
+    public Map<Long, Product> retrieveAllInCartItems(List<CartItem> cartItems) {
+        Set<Long> productIds = cartItems.stream()
+                .map(ci -> ci.getProduct().getId())
+                .collect(Collectors.toSet());
+
+        return productRepository.findAllById(productIds)
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
     public Double getTotalPriceOfProducts(List<CartItem> cartItems) {
+        return getTotalPriceOfProducts(cartItems, retrieveAllInCartItems(cartItems));
+    }
+
+    public Double getTotalPriceOfProducts(List<CartItem> cartItems, Map<Long, Product> products) {
         Double totalPrice = 0.0;
         for (CartItem ci : cartItems) {
             Integer quantity = ci.getQuantity();
-            Long productId = ci.getProduct().getId();
-            Double productPrice = productRepository.findById(productId).get().getPrice();
+            Double productPrice = snapshotOf(products, ci).getPrice();
             totalPrice += (productPrice * quantity);
         }
         return totalPrice;
     }
+
+    /* Stock held for other carts is left alone; the cart's own holds are consumed once the checkout commits. */
+    @Transactional
     public void updateProductStock(List<CartItem> cartItems) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        List<Long> cartItemIds = new ArrayList<>();
+        for (CartItem entry : cartItems) {
+            quantities.merge(entry.getProduct().getId(), entry.getQuantity(), Integer::sum);
+            cartItemIds.add(entry.getId());
+        }
+        reserveStock(quantities, stockHolds.heldByOthers(cartItemIds, quantities.keySet()));
+        stockHolds.releaseAfterCommit(cartItemIds);
+    }
+
+    /*
+     * All-or-nothing: every product is decremented with a conditional UPDATE, so two checkouts can never both take the last unit.
+     * Products tracked by the inventory ledger are reserved in memory instead and never lock their row.
+     */
+    @Transactional
+    public void reserveStock(Map<Long, Integer> quantities) {
+        reserveStock(quantities, Collections.emptyMap());
+    }
+
+    /* Like reserveStock, but leaves at least mustRemain units of a product, e.g. what other carts hold. */
+    @Transactional
+    public void reserveStock(Map<Long, Integer> quantities, Map<Long, Integer> mustRemain) {
+        if (quantities.isEmpty())
+            return;
+
+        Map<Long, Integer> untracked = inventoryLedger.reserve(quantities, mustRemain);
+        if (untracked.isEmpty())
+            return;
+
+        List<Long> unavailable = productRepository.decrementStock(untracked, mustRemain);
+        if (!unavailable.isEmpty())
+            throw new IllegalStateException("Product Not In stock");
+    }
 
-        for ( CartItem entry : cartItems ){
-            Product product = this.retrieveById(entry.getProduct().getId());
-            if (product.getInStock() < entry.getQuantity()){
-                throw new IllegalStateException("Product Not In stock");
-                //productAvailable = false;
+    private void importChunk(List<ProductImportRow> chunk, ProductImportResultDTO result) {
+        Set<Long> categoryIds = new HashSet<>();
+        Set<String> skus = new HashSet<>();
+        for (ProductImportRow row : chunk) {
+            if (row.getProduct() != null) {
+                if (row.getProduct().getCategoryId() != null)
+                    categoryIds.add(row.getProduct().getCategoryId());
+                if (row.getProduct().getSku() != null)
+                    skus.add(row.getProduct().getSku());
+            }
+        }
+        Map<Long, Category> categories = categoryIds.isEmpty()
+                ? Collections.emptyMap()
+                : categoryService.retrieveAllById(categoryIds);
+        Set<String> takenSkus = skus.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(productRepository.findExistingSkus(skus));
+
+        List<Product> products = new ArrayList<>();
+        List<ProductImportRow> accepted = new ArrayList<>();
+        for (ProductImportRow row : chunk) {
+            if (row.getError() != null) {
+                rejectRow(result, row, null, List.of(row.getError()));
+                continue;
             }
-            product.setInStock(product.getInStock() - entry.getQuantity());
 
-            productRepository.save(product);
+            ProductEntryDTO entry = row.getProduct();
+            Category category = entry.getCategoryId() == null ? null : categories.get(entry.getCategoryId());
+            Product product = new Product(entry.getName(), entry.getDescription(), entry.getSku(), category, entry.getPrice());
+
+            List<String> messages = validator.validate(product)
+                    .stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (entry.getCategoryId() != null && category == null) {
+                messages.remove("category must not be blank");
+                messages.add("No such Category");
+            }
+            /* Taken either in the database or by an earlier row of the same file. */
+            if (entry.getSku() != null && !takenSkus.add(entry.getSku()))
+                messages.add("SKU already exists");
+
+            if (!messages.isEmpty()) {
+                rejectRow(result, row, entry.getSku(), messages);
+                continue;
+            }
+            products.add(product);
+            accepted.add(row);
+        }
+
+        saveImported(products, accepted, result);
+    }
+
+    private void saveImported(List<Product> products, List<ProductImportRow> rows, ProductImportResultDTO result) {
+        if (products.isEmpty())
+            return;
+
+        try {
+            productRepository.saveAll(products);
+        } catch (DataIntegrityViolationException ex) {
+            /* A concurrent writer took one of the SKUs after the lookup; retry the chunk row by row to find it. */
+            for (int i = 0; i < products.size(); i++) {
+                Product product = products.get(i);
+                product.setId(null);
+                try {
+                    productRepository.save(product);
+                } catch (DataIntegrityViolationException rowEx) {
+                    /* Only the SKU key is reported as taken; any other constraint gets a generic row error. */
+                    boolean skuTaken = !productRepository.findExistingSkus(Set.of(product.getSku())).isEmpty();
+                    rejectRow(result, rows.get(i), product.getSku(),
+                            List.of(skuTaken ? "SKU already exists" : "Product could not be saved"));
+                    continue;
+                }
+                result.setImported(result.getImported() + 1);
+                indexProduct(product);
+            }
+            return;
         }
 
+        result.setImported(result.getImported() + products.size());
+        products.forEach(this::indexProduct);
+    }
+
+    private void rejectRow(ProductImportResultDTO result, ProductImportRow row, String sku, List<String> messages) {
+        result.setFailed(result.getFailed() + 1);
+        result.getErrors().add(new ProductImportErrorDTO(row.getLine(), sku, messages));
+    }
+
+    private void indexProduct(Product product) {
+        searchIndex.index(product.getId(), product.getName(), product.getDescription(), product.getSku());
+        facetIndex.index(product.getId(), product.getCategory().getId(), product.getPrice());
+    }
+
+    private void checkPriceRange(Double minPrice, Double maxPrice) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice)
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+    }
+
+    private Product snapshotOf(Map<Long, Product> products, CartItem cartItem) {
+        Product product = products.get(cartItem.getProduct().getId());
+        if (product == null)
+            throw new NoSuchElementException("No such Product");
+        return product;
     }
 
     public List<Product> getProductsOrderedAndInCartByUser(Long userId) {
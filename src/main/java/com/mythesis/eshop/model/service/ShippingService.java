@@ -7,6 +7,10 @@ import org.springframework.stereotype.Service;
 public class ShippingService {
 
     public void ship(Order order) {
+        checkShippable(order);
+    }
+
+    public void checkShippable(Order order) {
         Integer numberOfProducts = order.getOrderItems().size();
 
         if (numberOfProducts > 10) {
@@ -1,5 +1,6 @@
 package com.mythesis.eshop.model.service;
 
+import com.mythesis.eshop.model.cache.UserDetailsCache;
 import com.mythesis.eshop.model.entity.User;
 import com.mythesis.eshop.model.repository.UserRepository;
 
@@ -12,6 +13,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 
 import javax.validation.ConstraintViolation;
@@ -26,21 +28,28 @@ public class UserService implements UserDetailsService {
     private Validator validator;
     private UserMapper userMapper;
     private PasswordEncoder passwordEncoder;
+    private UserDetailsCache userDetailsCache;
 
     @Autowired
     public UserService(UserRepository userRepository,
                        Validator validator,
                        UserMapper userMapper,
-                       PasswordEncoder passwordEncoder) {
+                       PasswordEncoder passwordEncoder,
+                       UserDetailsCache userDetailsCache) {
         this.userRepository = userRepository;
         this.validator = validator;
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
+        this.userDetailsCache = userDetailsCache;
 
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, this::findUserDetails);
+    }
+
+    private UserDetails findUserDetails(String username) {
         User user;
         try {
              user = userRepository.findByUsername(username).get();
@@ -97,6 +106,7 @@ public class UserService implements UserDetailsService {
             throw new IllegalArgumentException("phone already exists");
 
         User retrievedUser = retrieveById(userId);
+        String previousUsername = retrievedUser.getUsername();
         userMapper.copyProperties(user, retrievedUser);
 
         Set<ConstraintViolation<User>> violations = validator.validate(retrievedUser);
@@ -104,6 +114,8 @@ public class UserService implements UserDetailsService {
             throw new ConstraintViolationException("Validation errors",violations);
 
         User updatedUser = userRepository.save(retrievedUser);
+        userDetailsCache.invalidate(previousUsername);
+        userDetailsCache.invalidate(updatedUser.getUsername());
        return  updatedUser;
     }
 
@@ -113,6 +125,8 @@ public class UserService implements UserDetailsService {
         }catch (EmptyResultDataAccessException ex){
             throw new NoSuchElementException("User does not exist");
         }
+        /* Only the id is known here; deletes are rare enough to drop every entry. */
+        userDetailsCache.invalidateAll();
     }
 
     public boolean usernameExists(String username){
@@ -127,13 +141,13 @@ public class UserService implements UserDetailsService {
                 .isPresent();
     }
 
+    /* Single conditional UPDATE, so concurrent purchases by the same user cannot overdraw the balance. */
+    @Transactional
     public void deductAmount(Long userId, Double amount) {
-        User user = this.retrieveById(userId);
-        System.out.println("UserId: " + userId + " Balance: " + user.getBalance() + " amount to deduct: " + amount);
-        if (user.getBalance() < amount)
+        if (userRepository.deductBalance(userId, amount) == 0) {
+            if (!userRepository.existsById(userId))
+                throw new NoSuchElementException("No such User");
             throw new IllegalStateException("Not enough Balance");
-
-        user.setBalance(user.getBalance() - amount);
-        userRepository.save(user);
+        }
     }
 }
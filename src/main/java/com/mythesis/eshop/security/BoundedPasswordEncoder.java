@@ -0,0 +1,141 @@
+package com.mythesis.eshop.security;
+
+import com.mythesis.eshop.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Runs the delegate's hashing on a small dedicated pool, so a burst of logins or registrations
+ * occupies at most that many cores instead of every request thread.
+ * Work that cannot be queued, or waits longer than maxWait for a free thread, fails fast with ServiceOverloadedException.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitNanos;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueWaitTimer;
+    private final Counter queueFullRejections;
+    private final Counter timeoutRejections;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration maxWait) {
+        this(delegate, threads, queueCapacity, maxWait, Metrics.globalRegistry);
+    }
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate,
+                                  int threads,
+                                  int queueCapacity,
+                                  Duration maxWait,
+                                  MeterRegistry registry) {
+        if (threads < 1 || queueCapacity < 1)
+            throw new IllegalArgumentException("threads and queueCapacity must be positive");
+
+        this.delegate = delegate;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads(), new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("password.hash")
+                .description("Time spent hashing or verifying a password")
+                .tag("operation", "encode")
+                .register(registry);
+        this.matchesTimer = Timer.builder("password.hash")
+                .description("Time spent hashing or verifying a password")
+                .tag("operation", "matches")
+                .register(registry);
+        this.queueWaitTimer = Timer.builder("password.hash.queue.wait")
+                .description("Time a hashing task waited for a thread")
+                .register(registry);
+        this.queueFullRejections = Counter.builder("password.hash.rejected")
+                .tag("reason", "queue_full")
+                .register(registry);
+        this.timeoutRejections = Counter.builder("password.hash.rejected")
+                .tag("reason", "timeout")
+                .register(registry);
+        Gauge.builder("password.hash.queue.size", executor, e -> e.getQueue().size())
+                .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    /* Only inspects the stored hash, so it stays on the caller's thread. */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int queueSize() {
+        return executor.getQueue().size();
+    }
+
+    /* Picked up by Spring as the bean's destroy method. */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /* Only the wait for a thread is bounded; once a worker claims the task its caller waits for the result. */
+    private <T> T submit(Callable<T> work, Timer timer) {
+        long submittedAt = System.nanoTime();
+        AtomicBoolean claimed = new AtomicBoolean();
+        FutureTask<T> task = new FutureTask<>(() -> {
+            if (!claimed.compareAndSet(false, true))
+                return null;
+            queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            return timer.recordCallable(work);
+        });
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            queueFullRejections.increment();
+            throw new ServiceOverloadedException("Too many concurrent logins, try again shortly");
+        }
+
+        try {
+            try {
+                return task.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                if (claimed.compareAndSet(false, true)) {
+                    executor.remove(task);
+                    timeoutRejections.increment();
+                    throw new ServiceOverloadedException("Too many concurrent logins, try again shortly");
+                }
+                return task.get();
+            }
+        } catch (InterruptedException ex) {
+            claimed.set(true);
+            executor.remove(task);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.mythesis.eshop.security;
+
+import com.auth0.jwt.algorithms.Algorithm;
+
+/* Signing settings shared by the filter that issues tokens and the one that verifies them. */
+final class JwtConstants {
+
+    static final String BEARER_PREFIX = "Bearer ";
+
+    /* Thread safe, so one instance serves every request. */
+    static final Algorithm ALGORITHM = Algorithm.HMAC256("mysecret".getBytes());
+
+    private JwtConstants() {
+    }
+}
@@ -3,13 +3,13 @@ package com.mythesis.eshop.security;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
-import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
-import org.apache.logging.log4j.util.Strings;
+import com.mythesis.eshop.util.ExpiringCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -19,15 +19,47 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Map;
-import java.util.Set;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 
+/*
+ * Authenticates requests carrying a bearer token.
+ * A token that verified once is remembered by its SHA-256 digest until it expires (at most MAX_CACHE_TTL),
+ * so a client's following requests skip signature verification and claim decoding.
+ */
 public class JwtTokenVerifier extends OncePerRequestFilter {
 
+    private static final int MAX_CACHED_TOKENS = 10_000;
+    private static final Duration MAX_CACHE_TTL = Duration.ofMinutes(10);
+
+    private final JWTVerifier verifier = JWT.require(JwtConstants.ALGORITHM).build();
+    private final ExpiringCache<String, VerifiedToken> verifiedTokens;
+    private final Timer cachedTokenTimer;
+    private final Timer verifiedTokenTimer;
+
+    public JwtTokenVerifier() {
+        this(Metrics.globalRegistry);
+    }
+
+    public JwtTokenVerifier(MeterRegistry registry) {
+        this.verifiedTokens = new ExpiringCache<>("jwt.tokens", MAX_CACHED_TOKENS, MAX_CACHE_TTL, registry);
+        this.cachedTokenTimer = Timer.builder("jwt.filter")
+                .description("Time spent authenticating a bearer token")
+                .tag("token", "cached")
+                .register(registry);
+        this.verifiedTokenTimer = Timer.builder("jwt.filter")
+                .description("Time spent authenticating a bearer token")
+                .tag("token", "verified")
+                .register(registry);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -35,34 +67,74 @@ public class JwtTokenVerifier extends OncePerRequestFilter {
 
         String authorizationHeader = request.getHeader(AUTHORIZATION);
 
-        if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")){
+        if (authorizationHeader == null || !authorizationHeader.startsWith(JwtConstants.BEARER_PREFIX)){
             filterChain.doFilter(request, response);
             return;
         }
-        try{
-            String accessToken = authorizationHeader.replace("Bearer ", "");
-            Algorithm algorithm = Algorithm.HMAC256("mysecret".getBytes());
-            JWTVerifier verifier = JWT.require(algorithm).build();
-            DecodedJWT decodedJWT = verifier.verify(accessToken);
-            String username = decodedJWT.getSubject();
-            String[] roles = decodedJWT.getClaim("roles").asArray(String.class);
-            Set<SimpleGrantedAuthority> authorities = Arrays
-                    .stream(roles).map(SimpleGrantedAuthority::new)
-                    .collect(Collectors.toSet());
-
-            Authentication authentication  = new UsernamePasswordAuthenticationToken(
-                    username,
-                    null,
-                    authorities
-            );
-
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            filterChain.doFilter(request, response);
 
-        }catch (JWTVerificationException ex){
+        long startedAt = System.nanoTime();
+        String accessToken = authorizationHeader.substring(JwtConstants.BEARER_PREFIX.length());
+        String digest = digest(accessToken);
+
+        Timer timer = cachedTokenTimer;
+        VerifiedToken token = verifiedTokens.get(digest);
+        if (token == null) {
+            token = verify(accessToken, digest);
+            timer = verifiedTokenTimer;
+        }
+
+        SecurityContextHolder.getContext().setAuthentication(token.toAuthentication());
+        timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+
+        filterChain.doFilter(request, response);
+    }
+
+    private VerifiedToken verify(String accessToken, String digest) {
+        DecodedJWT decodedJWT;
+        try {
+            decodedJWT = verifier.verify(accessToken);
+        } catch (JWTVerificationException ex){
             throw new IllegalStateException("Bad access token");
         }
 
+        String[] roles = decodedJWT.getClaim("roles").asArray(String.class);
+        Set<SimpleGrantedAuthority> authorities = roles == null
+                ? Collections.emptySet()
+                : Arrays.stream(roles).map(SimpleGrantedAuthority::new).collect(Collectors.toUnmodifiableSet());
+        VerifiedToken token = new VerifiedToken(decodedJWT.getSubject(), authorities);
+
+        Date expiresAt = decodedJWT.getExpiresAt();
+        if (expiresAt == null) {
+            verifiedTokens.put(digest, token);
+        } else {
+            long remainingMillis = expiresAt.getTime() - System.currentTimeMillis();
+            verifiedTokens.putUntil(digest, token, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(remainingMillis));
+        }
+        return token;
+    }
 
+    /* Tokens are looked up by digest, so the cache never holds usable credentials. */
+    private static String digest(String accessToken) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(accessToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /* Immutable, and turned into a fresh Authentication per request because those are mutable. */
+    private static final class VerifiedToken {
+        private final String username;
+        private final Set<SimpleGrantedAuthority> authorities;
+
+        private VerifiedToken(String username, Set<SimpleGrantedAuthority> authorities) {
+            this.username = username;
+            this.authorities = authorities;
+        }
+
+        private UsernamePasswordAuthenticationToken toAuthentication() {
+            return new UsernamePasswordAuthenticationToken(username, null, authorities);
+        }
     }
 }
@@ -1,14 +1,21 @@
 package com.mythesis.eshop.security;
 
 import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mythesis.eshop.dto.UserLoginDTO;
+import com.mythesis.eshop.exception.ApiError;
+import com.mythesis.eshop.exception.GlobalExceptionHandler;
+import com.mythesis.eshop.exception.ServiceOverloadedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import javax.servlet.FilterChain;
@@ -34,7 +41,6 @@ public class JwtUsernamePasswordAuthenticationFilter extends UsernamePasswordAut
 
         try {
             UserLoginDTO userCreds = new ObjectMapper().readValue(request.getInputStream(), UserLoginDTO.class);
-            System.out.println(userCreds.getUsername() + " --- " + userCreds.getPassword());
             Authentication authentication = new UsernamePasswordAuthenticationToken(
               userCreds.getUsername(),
               userCreds.getPassword()
@@ -43,9 +49,29 @@ public class JwtUsernamePasswordAuthenticationFilter extends UsernamePasswordAut
 
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } catch (ServiceOverloadedException ex) {
+            throw new AuthenticationServiceException(ex.getMessage(), ex);
         }
     }
 
+    /* A saturated hashing pool answers 503 rather than the 401 of a wrong password. */
+    @Override
+    protected void unsuccessfulAuthentication(HttpServletRequest request,
+                                              HttpServletResponse response,
+                                              AuthenticationException failed) throws IOException, ServletException {
+        if (!(failed.getCause() instanceof ServiceOverloadedException)) {
+            super.unsuccessfulAuthentication(request, response, failed);
+            return;
+        }
+
+        SecurityContextHolder.clearContext();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, GlobalExceptionHandler.RETRY_AFTER_SECONDS);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        new ObjectMapper().writeValue(response.getOutputStream(),
+                new ApiError(HttpStatus.SERVICE_UNAVAILABLE.value(), failed.getCause().getMessage()));
+    }
+
     @Override
     protected void successfulAuthentication(HttpServletRequest request,
                                             HttpServletResponse response,
@@ -56,17 +82,16 @@ public class JwtUsernamePasswordAuthenticationFilter extends UsernamePasswordAut
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toList());
 
-        Algorithm algorithm = Algorithm.HMAC256("mysecret".getBytes());
         String accessToken = JWT.create()
                 .withSubject(authResult.getName())
                 .withExpiresAt(Date.valueOf(LocalDate.now().plusDays(2)))
                 .withIssuer(request.getRequestURL().toString())
                 .withClaim("roles", authorities)
-                .sign(algorithm);
+                .sign(JwtConstants.ALGORITHM);
 
 
 
-        response.addHeader("Authorization", "Bearer " + accessToken);
+        response.addHeader("Authorization", JwtConstants.BEARER_PREFIX + accessToken);
 
     }
 }
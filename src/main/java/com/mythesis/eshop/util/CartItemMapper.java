@@ -7,37 +7,33 @@ import com.mythesis.eshop.model.entity.CartItem;
 import com.mythesis.eshop.model.entity.Product;
 import com.mythesis.eshop.model.service.CartService;
 import com.mythesis.eshop.model.service.ProductService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 public class CartItemMapper {
 
-    private ModelMapper modelMapper;
+    private EntityDtoConverter converter;
     private CartService cartService;
     private ProductService productService;
 
 
     @Autowired
-    public CartItemMapper(ModelMapper modelMapper,
+    public CartItemMapper(EntityDtoConverter converter,
                           CartService cartService,
                           ProductService productService) {
-        this.modelMapper = modelMapper;
+        this.converter = converter;
         this.cartService = cartService;
         this.productService = productService;
     }
 
     public CartItemInfoDTO toCartItemInfoDto(CartItem cartItem){
-        CartItemInfoDTO mapped = modelMapper.map(cartItem, CartItemInfoDTO.class);
-        mapped.setCartId(cartItem.getCart().getId());
-        mapped.setProductId(cartItem.getProduct().getId());
-        return mapped;
+        return converter.toCartItemInfoDto(cartItem);
     }
 
 
     public CartItem fromCartItemEntryDto(CartItemEntryDTO cartItem){
-        CartItem mappedCartItem = modelMapper.map(cartItem, CartItem.class);
+        CartItem mappedCartItem = converter.toCartItem(cartItem);
 
         if (cartItem.getCartId() != null){
             Cart cart = cartService.retrieveById(cartItem.getCartId());
@@ -54,7 +50,7 @@ public class CartItemMapper {
     }
 
     public void copyProperties(CartItem source, CartItem destination){
-        modelMapper.map(source,destination);
+        converter.copyCartItem(source, destination);
 
     }
 
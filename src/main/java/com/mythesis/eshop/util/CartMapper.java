@@ -2,34 +2,36 @@ package com.mythesis.eshop.util;
 
 import com.mythesis.eshop.dto.CartEntryDTO;
 import com.mythesis.eshop.dto.CartInfoDTO;
+import com.mythesis.eshop.dto.CartViewDTO;
 import com.mythesis.eshop.model.entity.Cart;
 import com.mythesis.eshop.model.entity.User;
 import com.mythesis.eshop.model.service.UserService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 public class CartMapper {
 
-    private ModelMapper modelMapper;
+    private EntityDtoConverter converter;
     private UserService userService;
 
     @Autowired
-    public CartMapper(ModelMapper modelMapper, UserService userService) {
-        this.modelMapper = modelMapper;
+    public CartMapper(EntityDtoConverter converter, UserService userService) {
+        this.converter = converter;
         this.userService = userService;
     }
 
     public CartInfoDTO toCartInfoDto(Cart cart){
-        CartInfoDTO mapped = modelMapper.map(cart, CartInfoDTO.class);
-        mapped.setUserId(cart.getUser().getId());
-        return mapped;
+        return converter.toCartInfoDto(cart);
+    }
+
+    public CartViewDTO toCartViewDto(Cart cart){
+        return converter.toCartViewDto(cart);
     }
 
 
     public Cart fromCartEntryDto(CartEntryDTO cart){
-        Cart mappedCart = modelMapper.map(cart, Cart.class);
+        Cart mappedCart = converter.toCart(cart);
 
         if (cart.getUserId() != null){
             User user = userService.retrieveById(cart.getUserId());
@@ -40,7 +42,7 @@ public class CartMapper {
     }
 
     public void copyProperties(Cart source, Cart destination){
-        modelMapper.map(source,destination);
+        converter.copyCart(source, destination);
 
     }
 
@@ -3,34 +3,30 @@ package com.mythesis.eshop.util;
 import com.mythesis.eshop.dto.CategoryEntryDTO;
 import com.mythesis.eshop.dto.CategoryInfoDTO;
 import com.mythesis.eshop.model.entity.Category;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 public class CategoryMapper {
 
-    private ModelMapper modelMapper;
+    private EntityDtoConverter converter;
 
     @Autowired
-    public CategoryMapper(ModelMapper modelMapper) {
-        this.modelMapper = modelMapper;
+    public CategoryMapper(EntityDtoConverter converter) {
+        this.converter = converter;
     }
 
     public CategoryInfoDTO toCategoryInfoDto(Category category){
-        CategoryInfoDTO mapped = modelMapper.map(category, CategoryInfoDTO.class);
-
-        return mapped;
+        return converter.toCategoryInfoDto(category);
     }
 
 
     public Category fromCategoryEntryDto(CategoryEntryDTO category){
-        Category mapped = modelMapper.map(category, Category.class);
-        return mapped;
+        return converter.toCategory(category);
     }
 
     public void copyProperties(Category source, Category destination){
-        modelMapper.map(source,destination);
+        converter.copyCategory(source, destination);
 
     }
 }
@@ -0,0 +1,93 @@
+package com.mythesis.eshop.util;
+
+import com.mythesis.eshop.dto.*;
+import com.mythesis.eshop.model.cache.ProductView;
+import com.mythesis.eshop.model.entity.*;
+import org.mapstruct.*;
+
+/*
+ * Every entity <-> DTO conversion, implemented at compile time by MapStruct as plain getter/setter calls.
+ * Copy methods skip null source properties and assign references to other entities as they are,
+ * they never descend into them. Looking entities up by id stays with the *Mapper components.
+ */
+@Mapper(componentModel = "spring",
+        unmappedTargetPolicy = ReportingPolicy.IGNORE,
+        nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+public interface EntityDtoConverter {
+
+    @Mapping(target = "categoryName", source = "category.title")
+    ProductInfoDTO toProductInfoDto(Product product);
+
+    ProductInfoDTO toProductInfoDto(ProductView product);
+
+    Product toProduct(ProductEntryDTO product);
+
+    /* Named, so MapStruct never picks a copy method for a nested property of another mapping. */
+    @Named("copyProduct")
+    void copyProduct(Product source, @MappingTarget Product destination);
+
+    CategoryInfoDTO toCategoryInfoDto(Category category);
+
+    Category toCategory(CategoryEntryDTO category);
+
+    @Named("copyCategory")
+    void copyCategory(Category source, @MappingTarget Category destination);
+
+    @Mapping(target = "userId", source = "user.id")
+    CartInfoDTO toCartInfoDto(Cart cart);
+
+    Cart toCart(CartEntryDTO cart);
+
+    @Mapping(target = "userId", source = "user.id")
+    @Mapping(target = "items", source = "cartItems")
+    CartViewDTO toCartViewDto(Cart cart);
+
+    @Mapping(target = "productId", source = "product.id")
+    @Mapping(target = "productName", source = "product.name")
+    @Mapping(target = "price", source = "product.price")
+    @Mapping(target = "inStock", source = "product.inStock")
+    CartViewItemDTO toCartViewItemDto(CartItem cartItem);
+
+    /* total and itemCount follow the cart's items, so clients cannot set them. */
+    @Named("copyCart")
+    @Mapping(target = "cartItems", ignore = true)
+    @Mapping(target = "total", ignore = true)
+    @Mapping(target = "itemCount", ignore = true)
+    void copyCart(Cart source, @MappingTarget Cart destination);
+
+    @Mapping(target = "cartId", source = "cart.id")
+    @Mapping(target = "productId", source = "product.id")
+    CartItemInfoDTO toCartItemInfoDto(CartItem cartItem);
+
+    CartItem toCartItem(CartItemEntryDTO cartItem);
+
+    @Named("copyCartItem")
+    void copyCartItem(CartItem source, @MappingTarget CartItem destination);
+
+    @Mapping(target = "userId", source = "user.id")
+    OrderInfoDTO toOrderInfoDto(Order order);
+
+    Order toOrder(OrderEntryDTO order);
+
+    @Named("copyOrder")
+    @Mapping(target = "orderItems", ignore = true)
+    void copyOrder(Order source, @MappingTarget Order destination);
+
+    @Mapping(target = "orderId", source = "order.id")
+    @Mapping(target = "productId", source = "product.id")
+    OrderItemInfoDTO toOrderItemInfoDto(OrderItem orderItem);
+
+    OrderItem toOrderItem(OrderItemEntryDTO orderItem);
+
+    @Named("copyOrderItem")
+    void copyOrderItem(OrderItem source, @MappingTarget OrderItem destination);
+
+    UserInfoDTO toUserInfoDto(User user);
+
+    User toUser(UserRegisterDTO user);
+
+    @Named("copyUser")
+    @Mapping(target = "orders", ignore = true)
+    @Mapping(target = "cart", ignore = true)
+    void copyUser(User source, @MappingTarget User destination);
+}
@@ -0,0 +1,209 @@
+package com.mythesis.eshop.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Bounded map whose entries expire after a time to live and, when it is full, are evicted approximately
+ * least recently used first. Reads take no lock: they only stamp the entry with the current access tick.
+ * Hits, misses, evictions and size are published as the standard cache.* meters tagged with the cache name.
+ */
+public class ExpiringCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    /* Advanced by every write, so an entry read since the last write ranks above the ones that were not. */
+    private final AtomicLong accessClock = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /* Bumped by every invalidation so a value loaded before it can be recognised as stale. */
+    private volatile long generation;
+
+    public ExpiringCache(String name, int maxSize, Duration ttl) {
+        this(name, maxSize, ttl, Metrics.globalRegistry);
+    }
+
+    public ExpiringCache(String name, int maxSize, Duration ttl, MeterRegistry registry) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("maxSize must be positive");
+
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+
+        FunctionCounter.builder("cache.gets", hits, LongAdder::doubleValue)
+                .tags("cache", name, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::doubleValue)
+                .tags("cache", name, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::doubleValue)
+                .tags("cache", name)
+                .register(registry);
+        Gauge.builder("cache.size", this, ExpiringCache::size)
+                .tags("cache", name)
+                .register(registry);
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            if (entries.remove(key, entry))
+                evictions.increment();
+            misses.increment();
+            return null;
+        }
+        entry.touch(accessClock.get());
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        putUntil(key, value, System.nanoTime() + ttlNanos);
+    }
+
+    /* Like put, but the entry never outlives the given System.nanoTime() deadline. */
+    public void putUntil(K key, V value, long expiresAtNanos) {
+        long now = System.nanoTime();
+        long deadline = Math.min(expiresAtNanos, now + ttlNanos);
+        if (deadline - now <= 0)
+            return;
+
+        entries.put(key, new Entry<>(value, deadline, accessClock.getAndIncrement()));
+        if (entries.size() > maxSize)
+            evictOverflow(now);
+    }
+
+    /*
+     * Stores the value only if nothing was invalidated since the given generation was read.
+     * Only this and the invalidations hold the monitor, so the check and the write cannot straddle one.
+     */
+    public synchronized boolean putIfGeneration(K key, V value, long expectedGeneration) {
+        if (generation != expectedGeneration)
+            return false;
+        put(key, value);
+        return true;
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private void evictOverflow(long now) {
+        /* One sweep at a time; a put that finds it running leaves the trimming to it. */
+        if (!evictionLock.tryLock())
+            return;
+        try {
+            if (entries.size() <= maxSize)
+                return;
+
+            /*
+             * Drop expired entries first, then the least recently used ones.
+             * The sweep walks the whole map, so trimming leaves some headroom and a full cache
+             * under a stream of misses does not pay for a sweep on every put.
+             */
+            List<Candidate<K, V>> live = new ArrayList<>(entries.size());
+            for (Map.Entry<K, Entry<V>> mapping : entries.entrySet()) {
+                Entry<V> entry = mapping.getValue();
+                if (!entry.isExpired(now))
+                    live.add(new Candidate<>(mapping.getKey(), entry));
+                else if (entries.remove(mapping.getKey(), entry))
+                    evictions.increment();
+            }
+            int target = maxSize - maxSize / 16;
+            if (entries.size() <= target)
+                return;
+            /* Readers keep stamping entries, so the order is taken from the ticks as they were when collected. */
+            live.sort(Comparator.comparingLong(candidate -> candidate.lastAccess));
+            for (Candidate<K, V> candidate : live) {
+                if (entries.size() <= target)
+                    break;
+                if (entries.remove(candidate.key, candidate.entry))
+                    evictions.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtNanos;
+        private volatile long lastAccess;
+
+        private Entry(V value, long expiresAtNanos, long lastAccess) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+            this.lastAccess = lastAccess;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+
+        /* Skips the write when the tick is unchanged, so hot entries do not keep dirtying their cache line. */
+        private void touch(long tick) {
+            if (lastAccess != tick)
+                lastAccess = tick;
+        }
+    }
+
+    private static final class Candidate<K, V> {
+        private final K key;
+        private final Entry<V> entry;
+        private final long lastAccess;
+
+        private Candidate(K key, Entry<V> entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
+}
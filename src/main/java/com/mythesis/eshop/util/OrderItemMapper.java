@@ -7,36 +7,32 @@ import com.mythesis.eshop.model.entity.OrderItem;
 import com.mythesis.eshop.model.entity.Product;
 import com.mythesis.eshop.model.service.OrderService;
 import com.mythesis.eshop.model.service.ProductService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 public class OrderItemMapper {
 
-    private ModelMapper modelMapper;
+    private EntityDtoConverter converter;
     private ProductService productService;
     private OrderService orderService;
 
     @Autowired
-    public OrderItemMapper(ModelMapper modelMapper,
+    public OrderItemMapper(EntityDtoConverter converter,
                            ProductService productService,
                            OrderService orderService) {
-        this.modelMapper = modelMapper;
+        this.converter = converter;
         this.productService = productService;
         this.orderService = orderService;
     }
 
     public OrderItemInfoDTO toOrderItemInfoDto(OrderItem orderItem){
-        OrderItemInfoDTO mapped = modelMapper.map(orderItem, OrderItemInfoDTO.class);
-        mapped.setOrderId(orderItem.getOrder().getId());
-        mapped.setProductId(orderItem.getProduct().getId());
-        return mapped;
+        return converter.toOrderItemInfoDto(orderItem);
     }
 
 
     public OrderItem fromOrderItemEntryDto(OrderItemEntryDTO orderItem){
-        OrderItem mapped = modelMapper.map(orderItem, OrderItem.class);
+        OrderItem mapped = converter.toOrderItem(orderItem);
 
         if (orderItem.getOrderId() != null){
             Order order = orderService.retrieveById(orderItem.getOrderId());
@@ -52,7 +48,7 @@ public class OrderItemMapper {
     }
 
     public void copyProperties(OrderItem source, OrderItem destination){
-        modelMapper.map(source,destination);
+        converter.copyOrderItem(source, destination);
 
     }
 
@@ -5,31 +5,28 @@ import com.mythesis.eshop.dto.OrderInfoDTO;
 import com.mythesis.eshop.model.entity.Order;
 import com.mythesis.eshop.model.entity.User;
 import com.mythesis.eshop.model.service.UserService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 public class OrderMapper {
 
-    private ModelMapper modelMapper;
+    private EntityDtoConverter converter;
     private UserService userService;
 
     @Autowired
-    public OrderMapper(ModelMapper modelMapper, UserService userService) {
-        this.modelMapper = modelMapper;
+    public OrderMapper(EntityDtoConverter converter, UserService userService) {
+        this.converter = converter;
         this.userService = userService;
     }
 
     public OrderInfoDTO toOrderInfoDto(Order order){
-        OrderInfoDTO mapped = modelMapper.map(order, OrderInfoDTO.class);
-        mapped.setUserId(order.getUser().getId());
-        return mapped;
+        return converter.toOrderInfoDto(order);
     }
 
 
     public Order fromOrderEntryDto(OrderEntryDTO order){
-        Order mappedOrder = modelMapper.map(order, Order.class);
+        Order mappedOrder = converter.toOrder(order);
 
         if (order.getUserId() != null){
             User user = userService.retrieveById(order.getUserId());
@@ -40,7 +37,7 @@ public class OrderMapper {
     }
 
     public void copyProperties(Order source, Order destination){
-        modelMapper.map(source,destination);
+        converter.copyOrder(source, destination);
 
     }
 }
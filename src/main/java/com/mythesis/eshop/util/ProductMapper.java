@@ -2,35 +2,37 @@ package com.mythesis.eshop.util;
 
 import com.mythesis.eshop.dto.ProductEntryDTO;
 import com.mythesis.eshop.dto.ProductInfoDTO;
+import com.mythesis.eshop.model.cache.ProductView;
 import com.mythesis.eshop.model.entity.Category;
 import com.mythesis.eshop.model.entity.Product;
 import com.mythesis.eshop.model.service.CategoryService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 public class ProductMapper {
 
-    private ModelMapper modelMapper;
+    private EntityDtoConverter converter;
     private CategoryService categoryService;
 
     @Autowired
-    public ProductMapper(ModelMapper modelMapper,
+    public ProductMapper(EntityDtoConverter converter,
                          CategoryService categoryService) {
-        this.modelMapper = modelMapper;
+        this.converter = converter;
         this.categoryService = categoryService;
     }
 
     public ProductInfoDTO toProductInfoDto(Product product){
-        ProductInfoDTO mapped = modelMapper.map(product, ProductInfoDTO.class);
-        mapped.setCategoryName(product.getCategory().getTitle());
-        return  mapped;
+        return converter.toProductInfoDto(product);
+    }
+
+    public ProductInfoDTO toProductInfoDto(ProductView product){
+        return converter.toProductInfoDto(product);
     }
 
 
     public Product fromProductEntryDto(ProductEntryDTO product){
-        Product  mappedProduct = modelMapper.map(product, Product.class);
+        Product  mappedProduct = converter.toProduct(product);
         if (product.getCategoryId() != null) {
             Category category = categoryService.retrieveById(product.getCategoryId());
             mappedProduct.setCategory(category);
@@ -40,6 +42,6 @@ public class ProductMapper {
     }
 
     public void copyProperties(Product source, Product destination){
-        modelMapper.map(source,destination);
+        converter.copyProduct(source, destination);
     }
 }
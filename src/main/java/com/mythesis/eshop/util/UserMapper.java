@@ -4,29 +4,28 @@ import com.mythesis.eshop.dto.UserInfoDTO;
 import com.mythesis.eshop.dto.UserLoginDTO;
 import com.mythesis.eshop.dto.UserRegisterDTO;
 import com.mythesis.eshop.model.entity.User;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 public class UserMapper {
 
-    private ModelMapper modelMapper;
+    private EntityDtoConverter converter;
 
     @Autowired
-    public UserMapper(ModelMapper modelMapper) {
-        this.modelMapper = modelMapper;
+    public UserMapper(EntityDtoConverter converter) {
+        this.converter = converter;
     }
 
     public UserInfoDTO toUserInfoDto(User user){
-        return modelMapper.map(user, UserInfoDTO.class);
+        return converter.toUserInfoDto(user);
     }
 
     public User fromUserRegDto(UserRegisterDTO user){
-        return modelMapper.map(user, User.class);
+        return converter.toUser(user);
     }
 
     public void copyProperties(User source, User destination){
-        modelMapper.map(source,destination);
+        converter.copyUser(source, destination);
     }
 }
@@ -0,0 +1,33 @@
+package com.mythesis.eshop.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Entry point of the benchmark profile: mvn -Pbenchmark verify
+ * Results are written as JSON so two releases can be compared with any JMH result viewer or a plain diff.
+ * System properties: jmh.include (regex), jmh.result (file), and catalogSize, cartSize, listSize
+ * to override the data volumes of the harnesses that declare them.
+ */
+public class BenchmarkRunner {
+
+    private static final String[] VOLUME_PARAMETERS = { "catalogSize", "cartSize", "listSize" };
+
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", "com.mythesis.eshop.benchmark.*Benchmark"))
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("jmh.result", "target/jmh-result.json"));
+
+        for (String parameter : VOLUME_PARAMETERS) {
+            String values = System.getProperty(parameter);
+            if (values != null && !values.isBlank())
+                options.param(parameter, values.split(","));
+        }
+
+        new Runner(options.build()).run();
+    }
+}
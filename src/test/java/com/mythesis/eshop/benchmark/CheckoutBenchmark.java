@@ -0,0 +1,95 @@
+package com.mythesis.eshop.benchmark;
+
+import com.mythesis.eshop.EshopApplication;
+import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.model.repository.*;
+import com.mythesis.eshop.model.service.CartItemService;
+import com.mythesis.eshop.model.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Checkout paths against the application context on an embedded H2 database,
+ * seeded with catalogSize products and a cart holding cartSize of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckoutBenchmark {
+
+    @Param("1000")
+    private int catalogSize;
+
+    @Param({ "1", "20" })
+    private int cartSize;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private CartItemService cartItemService;
+
+    private Long cartId;
+    private List<CartItem> cartItems;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(EshopApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "logging.level.root=WARN")
+                .run();
+        productService = context.getBean(ProductService.class);
+        cartItemService = context.getBean(CartItemService.class);
+
+        Category category = context.getBean(CategoryRepository.class).save(new Category("Benchmark"));
+        List<Product> products = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            Product product = new Product("product " + i, "description " + i, "BM-" + i, category, 1.0 + i % 100);
+            product.setInStock(Integer.MAX_VALUE / 2);
+            products.add(product);
+        }
+        products = context.getBean(ProductRepository.class).saveAll(products);
+
+        User user = new User("benchmark", "1234", "bench", "mark", "larisa", "6900000000", Double.MAX_VALUE / 2);
+        user.setRole("ROLE_USER");
+        user = context.getBean(UserRepository.class).save(user);
+        Cart cart = context.getBean(CartRepository.class).save(new Cart(user, 0.0));
+        cartId = cart.getId();
+
+        List<CartItem> items = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            items.add(new CartItem(cart, products.get(i * (catalogSize / cartSize)), 1));
+        }
+        CartItemRepository cartItemRepository = context.getBean(CartItemRepository.class);
+        cartItemRepository.saveAll(items);
+        cartItems = cartItemRepository.findAllByCartId(cartId);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Double totalPrice() {
+        return productService.getTotalPriceOfProducts(cartItems);
+    }
+
+    @Benchmark
+    public Boolean purchase() {
+        return cartItemService.purchaseAllInCartItems(cartId);
+    }
+}
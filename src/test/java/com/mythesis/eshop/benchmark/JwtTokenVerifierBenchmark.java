@@ -0,0 +1,82 @@
+package com.mythesis.eshop.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.mythesis.eshop.security.JwtTokenVerifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+
+/* One authenticated request through the JWT filter, repeating one token or cycling through more tokens than the cache holds. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenVerifierBenchmark {
+
+    private static final int DISTINCT_TOKENS = 20_000;
+
+    private JwtTokenVerifier verifier;
+    private MockHttpServletRequest request;
+    private MockHttpServletRequest[] distinctRequests;
+    private MockHttpServletResponse response;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Algorithm algorithm = Algorithm.HMAC256("mysecret".getBytes());
+        Date expiresAt = new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1));
+
+        verifier = new JwtTokenVerifier(new SimpleMeterRegistry());
+        request = request(token("chris", expiresAt, algorithm));
+        distinctRequests = new MockHttpServletRequest[DISTINCT_TOKENS];
+        for (int i = 0; i < DISTINCT_TOKENS; i++) {
+            distinctRequests[i] = request(token("user" + i, expiresAt, algorithm));
+        }
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object verify() throws ServletException, IOException {
+        return authenticate(request);
+    }
+
+    @Benchmark
+    public Object verifyDistinctTokens() throws ServletException, IOException {
+        next = (next + 1) % DISTINCT_TOKENS;
+        return authenticate(distinctRequests[next]);
+    }
+
+    private Object authenticate(MockHttpServletRequest request) throws ServletException, IOException {
+        verifier.doFilter(request, response, new MockFilterChain());
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products");
+        request.addHeader(AUTHORIZATION, "Bearer " + token);
+        return request;
+    }
+
+    private static String token(String subject, Date expiresAt, Algorithm algorithm) {
+        return JWT.create()
+                .withSubject(subject)
+                .withArrayClaim("roles", new String[] { "ROLE_USER" })
+                .withExpiresAt(expiresAt)
+                .sign(algorithm);
+    }
+}
@@ -0,0 +1,105 @@
+package com.mythesis.eshop.benchmark;
+
+import com.mythesis.eshop.dto.*;
+import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.util.EntityDtoConverter;
+import com.mythesis.eshop.util.EntityDtoConverterImpl;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Entity to DTO conversion per DTO type: the generated converter against the reflective ModelMapper
+ * it replaced, configured the way BeansConfiguration used to (skip-null).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({ "product", "category", "cart", "cartItem", "order", "orderItem", "user", "productCopy" })
+    private String type;
+
+    private EntityDtoConverter converter;
+    private ModelMapper modelMapper;
+
+    private Product product;
+    private Category category;
+    private Cart cart;
+    private CartItem cartItem;
+    private Order order;
+    private OrderItem orderItem;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        converter = new EntityDtoConverterImpl();
+        modelMapper = new ModelMapper();
+        modelMapper.getConfiguration().setSkipNullEnabled(true);
+
+        category = new Category("Electronics");
+        category.setId(1L);
+        product = new Product("phone", "a smart phone", "PH-1", category, 199.0);
+        product.setId(2L);
+        product.setInStock(10);
+        user = new User("chris", "secret", "Chris", "Z", "Larisa", "6900000000", 1000.0);
+        user.setId(3L);
+        cart = new Cart(user, 398.0);
+        cart.setId(4L);
+        cartItem = new CartItem(cart, product, 2);
+        cartItem.setId(5L);
+        order = new Order(user, 398.0);
+        order.setId(6L);
+        orderItem = new OrderItem(order, product);
+        orderItem.setId(7L);
+    }
+
+    @Benchmark
+    public Object generated() {
+        switch (type) {
+            case "product": return converter.toProductInfoDto(product);
+            case "category": return converter.toCategoryInfoDto(category);
+            case "cart": return converter.toCartInfoDto(cart);
+            case "cartItem": return converter.toCartItemInfoDto(cartItem);
+            case "order": return converter.toOrderInfoDto(order);
+            case "orderItem": return converter.toOrderItemInfoDto(orderItem);
+            case "user": return converter.toUserInfoDto(user);
+            default:
+                Product destination = new Product();
+                converter.copyProduct(product, destination);
+                return destination;
+        }
+    }
+
+    @Benchmark
+    public Object modelMapper() {
+        switch (type) {
+            case "product": return modelMapper.map(product, ProductInfoDTO.class);
+            case "category": return modelMapper.map(category, CategoryInfoDTO.class);
+            case "cart": return modelMapper.map(cart, CartInfoDTO.class);
+            case "cartItem": return modelMapper.map(cartItem, CartItemInfoDTO.class);
+            case "order": return modelMapper.map(order, OrderInfoDTO.class);
+            case "orderItem": return modelMapper.map(orderItem, OrderItemInfoDTO.class);
+            case "user": return modelMapper.map(user, UserInfoDTO.class);
+            default:
+                Product destination = new Product();
+                modelMapper.map(product, destination);
+                return destination;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MapperBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
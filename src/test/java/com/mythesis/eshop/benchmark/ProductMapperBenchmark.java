@@ -0,0 +1,55 @@
+package com.mythesis.eshop.benchmark;
+
+import com.mythesis.eshop.dto.ProductInfoDTO;
+import com.mythesis.eshop.model.cache.ProductView;
+import com.mythesis.eshop.model.entity.Category;
+import com.mythesis.eshop.model.entity.Product;
+import com.mythesis.eshop.util.EntityDtoConverterImpl;
+import com.mythesis.eshop.util.ProductMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/* ProductMapper.toProductInfoDto over a listing-sized batch of products. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductMapperBenchmark {
+
+    @Param("100")
+    private int listSize;
+
+    private ProductMapper productMapper;
+    private List<Product> products;
+    private List<ProductView> views;
+
+    @Setup
+    public void setUp() {
+        productMapper = new ProductMapper(new EntityDtoConverterImpl(), null);
+
+        Category category = new Category("Electronics");
+        products = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            Product product = new Product("product " + i, "description " + i, "PM-" + i, category, 1.0 + i);
+            product.setId((long) i);
+            products.add(product);
+        }
+        views = products.stream().map(ProductView::of).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<ProductInfoDTO> fromEntities() {
+        return products.stream().map(productMapper::toProductInfoDto).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<ProductInfoDTO> fromCachedViews() {
+        return views.stream().map(productMapper::toProductInfoDto).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,98 @@
+package com.mythesis.eshop.benchmark;
+
+import com.mythesis.eshop.model.search.ProductSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Search latency over a synthetic catalog.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.mythesis.eshop.benchmark.ProductSearchIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProductSearchIndexBenchmark {
+
+    private static final int VOCABULARY = 20_000;
+
+    @Param("1000000")
+    private int products;
+
+    private ProductSearchIndex index;
+    private String[] words;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = randomWord(random);
+        }
+
+        index = new ProductSearchIndex();
+        for (long id = 1; id <= products; id++) {
+            index.index(id, phrase(random, 3), phrase(random, 12), "SKU-" + id);
+        }
+    }
+
+    @Benchmark
+    public List<Long> exactTerm() {
+        return index.search(words[7], 20);
+    }
+
+    @Benchmark
+    public List<Long> prefix() {
+        return index.search(words[7].substring(0, 3), 20);
+    }
+
+    @Benchmark
+    public List<Long> twoTerms() {
+        return index.search(words[7] + " " + words[11], 20);
+    }
+
+    @Benchmark
+    public List<Long> sku() {
+        return index.search("SKU-" + products / 2, 20);
+    }
+
+    @Benchmark
+    public void reindexOne() {
+        index.index(42L, words[1] + " " + words[2], words[3], "SKU-42");
+    }
+
+    private String phrase(Random random, int length) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            /* Squaring skews the pick towards the start of the vocabulary, like real word frequencies. */
+            double skewed = random.nextDouble() * random.nextDouble();
+            phrase.append(words[(int) (skewed * VOCABULARY)]).append(' ');
+        }
+        return phrase.toString();
+    }
+
+    private static String randomWord(Random random) {
+        char[] letters = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ProductSearchIndexBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.mythesis.eshop.config;
+
+import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.model.repository.*;
+import com.mythesis.eshop.model.service.CartService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class CartItemDuplicateMergerTest {
+
+    @Autowired
+    private CartItemDuplicateMerger underTest;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /* Stands in for a database from before the constraint existed. */
+    @BeforeEach
+    void dropConstraint(){
+        jdbcTemplate.execute("ALTER TABLE e_cart_item DROP CONSTRAINT uk_cart_item_cart_product");
+    }
+
+    @AfterEach
+    void restoreConstraint(){
+        jdbcTemplate.execute("ALTER TABLE e_cart_item ADD CONSTRAINT uk_cart_item_cart_product UNIQUE (cart_id, product_id)");
+    }
+
+    @Test
+    void canMergeDuplicateCartItems(){
+        User user = new User("merged" + System.nanoTime(), "1234", "merged", "merged", "larisa",
+                String.valueOf(System.nanoTime()), 100.0);
+        user.setRole("ROLE_USER");
+        user = userRepository.save(user);
+        Category category = categoryRepository.save(new Category("Merged"));
+        Product pen = productRepository.save(new Product("pen", "description", "pen-" + System.nanoTime(), category, 1.5));
+        Product book = productRepository.save(new Product("book", "description", "book-" + System.nanoTime(), category, 10.0));
+        Cart cart = cartRepository.save(new Cart(user, 0.0));
+
+        CartItem first = cartItemRepository.save(new CartItem(cart, pen, 2));
+        cartItemRepository.save(new CartItem(cart, pen, 3));
+        cartItemRepository.save(new CartItem(cart, pen, 1));
+        cartItemRepository.save(new CartItem(cart, book, 1));
+
+        assertThat(underTest.mergeDuplicates()).isEqualTo(1);
+        cartService.recalculateUnmaintainedTotals();
+
+        List<CartItem> items = cartItemRepository.findAllByCartId(cart.getId());
+        assertThat(items).hasSize(2);
+        assertThat(items).anySatisfy(item -> {
+            assertThat(item.getId()).isEqualTo(first.getId());
+            assertThat(item.getQuantity()).isEqualTo(6);
+        });
+        Cart merged = cartRepository.findById(cart.getId()).get();
+        assertThat(merged.getItemCount()).isEqualTo(7);
+        assertThat(merged.getTotal()).isEqualTo(19.0);
+        assertThat(underTest.mergeDuplicates()).isZero();
+    }
+}
@@ -4,14 +4,21 @@ package com.mythesis.eshop.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mythesis.eshop.dto.CartEntryDTO;
 import com.mythesis.eshop.dto.CartInfoDTO;
+import com.mythesis.eshop.dto.CartItemOperationDTO;
+import com.mythesis.eshop.dto.CartViewDTO;
+import com.mythesis.eshop.dto.CartViewItemDTO;
 import com.mythesis.eshop.dto.CartItemEntryDTO;
 import com.mythesis.eshop.dto.CartItemInfoDTO;
+import com.mythesis.eshop.dto.CheckoutStatusDTO;
+import com.mythesis.eshop.dto.OrderInfoDTO;
 import com.mythesis.eshop.exception.ApiError;
 import com.mythesis.eshop.model.entity.Cart;
 import com.mythesis.eshop.model.entity.CartItem;
 import com.mythesis.eshop.model.entity.Order;
+import com.mythesis.eshop.model.service.AsyncCheckoutService;
 import com.mythesis.eshop.model.service.CartItemService;
 import com.mythesis.eshop.model.service.CartService;
+import com.mythesis.eshop.model.service.CheckoutService;
 import com.mythesis.eshop.util.CartItemMapper;
 import com.mythesis.eshop.util.CartMapper;
 import org.junit.jupiter.api.Test;
@@ -20,6 +27,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -42,9 +51,24 @@ class CartControllerTest {
     @MockBean
     private CartService cartService;
 
+    @MockBean
+    private CartItemService cartItemService;
+
     @MockBean
     private CartMapper cartMapper;
 
+    @MockBean
+    private CheckoutService checkoutService;
+
+    @MockBean
+    private AsyncCheckoutService asyncCheckoutService;
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @MockBean
+    private UserDetailsService userDetailsService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -97,6 +121,31 @@ class CartControllerTest {
         );
     }
 
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canGetCartView_andReturn200() throws Exception {
+        Cart cart = new Cart();
+        CartViewItemDTO item = new CartViewItemDTO();
+        item.setProductName("pen");
+        item.setQuantity(2);
+        CartViewDTO expectedView = new CartViewDTO();
+        expectedView.setId(4L);
+        expectedView.setItems(List.of(item));
+
+        when(cartService.retrieveViewById(eq(4L))).thenReturn(cart);
+        when(cartMapper.toCartViewDto(eq(cart))).thenReturn(expectedView);
+
+        MvcResult mvcResult = mockMvc.perform(get("/carts/{cartId}/view", 4L))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String actualResponseBody = mvcResult.getResponse().getContentAsString();
+
+        assertThat(actualResponseBody).isEqualToIgnoringWhitespace(
+                objectMapper.writeValueAsString(expectedView)
+        );
+    }
+
     @Test
     void caNotGetCart_andReturn403() throws Exception {
        mockMvc.perform(get("/carts/{cartId}", 1L))
@@ -150,6 +199,46 @@ class CartControllerTest {
 
     }
 
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canApplyItemOperations_andReturn200() throws Exception {
+        CartItemOperationDTO operation = new CartItemOperationDTO();
+        operation.setType(CartItemOperationDTO.Type.ADD);
+        operation.setProductId(3L);
+        operation.setQuantity(2);
+        Cart cart = new Cart();
+        CartViewDTO expectedView = new CartViewDTO();
+        expectedView.setId(4L);
+
+        when(cartService.retrieveViewById(eq(4L))).thenReturn(cart);
+        when(cartMapper.toCartViewDto(eq(cart))).thenReturn(expectedView);
+
+        MvcResult mvcResult = mockMvc.perform(post("/carts/{cartId}/items", 4L)
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(List.of(operation))))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        verify(cartItemService).applyOperations(eq(4L), argThat(operations ->
+                operations.size() == 1 && operations.get(0).getType() == CartItemOperationDTO.Type.ADD
+                        && operations.get(0).getProductId() == 3L));
+        assertThat(mvcResult.getResponse().getContentAsString()).isEqualToIgnoringWhitespace(
+                objectMapper.writeValueAsString(expectedView)
+        );
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canNotApplyInvalidItemOperations_andReturn400() throws Exception {
+        doThrow(new IllegalArgumentException("productId must not be blank"))
+                .when(cartItemService).applyOperations(eq(4L), any());
+
+        mockMvc.perform(post("/carts/{cartId}/items", 4L)
+                        .contentType("application/json")
+                        .content("[{\"type\":\"ADD\",\"quantity\":1}]"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void canNotCreateCart_andReturn403() throws Exception {
         CartEntryDTO cartEntry = new CartEntryDTO();
@@ -341,4 +430,49 @@ class CartControllerTest {
                 objectMapper.writeValueAsString(expectedErrorResponse)
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canPurchaseWithIdempotencyKey_andReturn200() throws Exception {
+        OrderInfoDTO orderInfo = new OrderInfoDTO();
+        orderInfo.setId(5L);
+        orderInfo.setTotal(20.0);
+        when(checkoutService.purchase(3L, "key-1")).thenReturn(orderInfo);
+
+        MvcResult mvcResult = mockMvc.perform(post("/carts/{cartId}/purchase", 3L)
+                        .header(CartController.IDEMPOTENCY_KEY, "key-1"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getContentAsString())
+                .isEqualToIgnoringWhitespace(objectMapper.writeValueAsString(orderInfo));
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canNotPurchaseWithoutIdempotencyKey_andReturn400() throws Exception {
+        mockMvc.perform(post("/carts/{cartId}/purchase", 3L))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(checkoutService);
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canSubmitCheckout_andReturn202() throws Exception {
+        CheckoutStatusDTO checkoutStatus = new CheckoutStatusDTO();
+        checkoutStatus.setId("c1");
+        checkoutStatus.setCartId(3L);
+        checkoutStatus.setState(CheckoutStatusDTO.State.QUEUED);
+        when(asyncCheckoutService.submit(3L, "key-1")).thenReturn(checkoutStatus);
+
+        MvcResult mvcResult = mockMvc.perform(post("/carts/{cartId}/checkouts", 3L)
+                        .header(CartController.IDEMPOTENCY_KEY, "key-1"))
+                .andExpect(status().isAccepted())
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getHeader("Location")).isEqualTo("/checkouts/c1");
+        assertThat(mvcResult.getResponse().getContentAsString())
+                .isEqualToIgnoringWhitespace(objectMapper.writeValueAsString(checkoutStatus));
+    }
+}
@@ -0,0 +1,74 @@
+package com.mythesis.eshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mythesis.eshop.dto.CheckoutStatusDTO;
+import com.mythesis.eshop.exception.ApiError;
+import com.mythesis.eshop.model.service.AsyncCheckoutService;
+import com.mythesis.eshop.model.service.CheckoutStage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(CheckoutController.class)
+class CheckoutControllerTest {
+
+    @MockBean
+    private AsyncCheckoutService asyncCheckoutService;
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @MockBean
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canGetCheckout_andReturn200() throws Exception {
+        CheckoutStatusDTO checkoutStatus = new CheckoutStatusDTO();
+        checkoutStatus.setId("c1");
+        checkoutStatus.setState(CheckoutStatusDTO.State.PROCESSING);
+        checkoutStatus.setStage(CheckoutStage.SHIPPING);
+        checkoutStatus.setOrderId(5L);
+        when(asyncCheckoutService.retrieveStatus("c1")).thenReturn(checkoutStatus);
+
+        MvcResult mvcResult = mockMvc.perform(get("/checkouts/{checkoutId}", "c1"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getContentAsString())
+                .isEqualToIgnoringWhitespace(objectMapper.writeValueAsString(checkoutStatus));
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canNotGetUnknownCheckout_andReturn404() throws Exception {
+        when(asyncCheckoutService.retrieveStatus("missing")).thenThrow(new NoSuchElementException("No such Checkout"));
+
+        MvcResult mvcResult = mockMvc.perform(get("/checkouts/{checkoutId}", "missing"))
+                .andExpect(status().isNotFound())
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getContentAsString()).isEqualToIgnoringWhitespace(
+                objectMapper.writeValueAsString(new ApiError(HttpStatus.NOT_FOUND.value(), "No such Checkout")));
+    }
+}
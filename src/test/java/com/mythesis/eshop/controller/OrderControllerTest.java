@@ -4,6 +4,7 @@ package com.mythesis.eshop.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mythesis.eshop.dto.OrderEntryDTO;
 import com.mythesis.eshop.dto.OrderInfoDTO;
+import com.mythesis.eshop.dto.OrderStatsDTO;
 import com.mythesis.eshop.dto.UserInfoDTO;
 import com.mythesis.eshop.dto.UserRegisterDTO;
 import com.mythesis.eshop.exception.ApiError;
@@ -20,6 +21,8 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -45,6 +48,12 @@ class OrderControllerTest {
     @MockBean
     private OrderMapper orderMapper;
 
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @MockBean
+    private UserDetailsService userDetailsService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -302,6 +311,26 @@ class OrderControllerTest {
         );
     }
 
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canGetStats_andReturn200() throws Exception {
+        OrderStatsDTO expectedStats = new OrderStatsDTO();
+        expectedStats.setOrderCount(3L);
+
+        when(orderService.stats(eq(7))).thenReturn(expectedStats);
+
+        MvcResult mvcResult = mockMvc.perform(get("/orders/stats")
+                        .param("days", "7"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String actualResponseBody = mvcResult.getResponse().getContentAsString();
+
+        assertThat(actualResponseBody).isEqualToIgnoringWhitespace(
+                objectMapper.writeValueAsString(expectedStats)
+        );
+    }
+
     @Test
     @WithMockUser(username = "test", roles = { "ADMIN" })
     void canDeleteOrder_andReturn200() throws Exception {
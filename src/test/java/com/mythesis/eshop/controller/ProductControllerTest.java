@@ -2,11 +2,15 @@ package com.mythesis.eshop.controller;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mythesis.eshop.dto.PriceBucketDTO;
 import com.mythesis.eshop.dto.ProductEntryDTO;
+import com.mythesis.eshop.dto.ProductFacetsDTO;
+import com.mythesis.eshop.dto.ProductImportResultDTO;
 import com.mythesis.eshop.dto.ProductInfoDTO;
 import com.mythesis.eshop.dto.UserInfoDTO;
 import com.mythesis.eshop.dto.UserRegisterDTO;
 import com.mythesis.eshop.exception.ApiError;
+import com.mythesis.eshop.model.cache.ProductView;
 import com.mythesis.eshop.model.entity.Product;
 import com.mythesis.eshop.model.entity.User;
 import com.mythesis.eshop.model.service.ProductService;
@@ -20,6 +24,8 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -27,12 +33,16 @@ import org.springframework.test.web.servlet.MvcResult;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -45,6 +55,12 @@ class ProductControllerTest {
     @MockBean
     private ProductMapper productMapper;
 
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @MockBean
+    private UserDetailsService userDetailsService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -55,17 +71,179 @@ class ProductControllerTest {
     @WithMockUser(username = "test", roles = { "USER" })
     void canGetProducts_andReturn200() throws Exception {
 
-        List<Product> products = new ArrayList<>();
-        products.add(new Product());
-        products.add(new Product());
-        when(productService.retrieveAll()).thenReturn(products);
+        List<ProductInfoDTO> products = new ArrayList<>();
+        products.add(new ProductInfoDTO(1L, "p1", "d1", "s1", "c1", 1.0));
+        products.add(new ProductInfoDTO(2L, "p2", "d2", "s2", "c1", 2.0));
+        when(productService.retrieveAllInfo()).thenReturn(products);
 
-        mockMvc.perform(get("/products"))
+        MvcResult mvcResult = mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getContentAsString()).isEqualToIgnoringWhitespace(
+                objectMapper.writeValueAsString(products)
+        );
+        verifyNoInteractions(productMapper);
+
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canGetProductsPage_andReturn200() throws Exception {
+
+        List<ProductInfoDTO> products = new ArrayList<>();
+        products.add(new ProductInfoDTO(11L, "p11", "d11", "s11", "c1", 1.0));
+        when(productService.retrieveInfoAfter(10L, 20)).thenReturn(products);
+
+        MvcResult mvcResult = mockMvc.perform(get("/products")
+                        .param("after", "10")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        verify(productService, never()).retrieveAllInfo();
+        assertThat(mvcResult.getResponse().getContentAsString()).isEqualToIgnoringWhitespace(
+                objectMapper.writeValueAsString(products)
+        );
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canGetProductsPageWithDefaults_andReturn200() throws Exception {
+
+        mockMvc.perform(get("/products")
+                        .param("limit", "5"))
+                .andExpect(status().isOk());
+
+        verify(productService).retrieveInfoAfter(0L, 5);
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canNotGetProductsPageWithIllegalLimit_andReturn400() throws Exception {
+
+        when(productService.retrieveInfoAfter(0L, 0)).thenThrow(new IllegalArgumentException("limit must be between 1 and 1000"));
+        MvcResult mvcResult = mockMvc.perform(get("/products")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+
+        ApiError expectedErrorResponse = new ApiError(HttpStatus.BAD_REQUEST.value(), "limit must be between 1 and 1000");
+        String actualResponseBody = mvcResult.getResponse().getContentAsString();
+
+        assertThat(actualResponseBody).isEqualToIgnoringWhitespace(
+                objectMapper.writeValueAsString(expectedErrorResponse)
+        );
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canStreamProducts_andReturn200() throws Exception {
+
+        List<ProductInfoDTO> products = new ArrayList<>();
+        products.add(new ProductInfoDTO(1L, "p1", "d1", "s1", "c1", 1.0));
+        products.add(new ProductInfoDTO(2L, "p2", "d2", "s2", "c1", 2.0));
+        doAnswer(invocation -> {
+            Consumer<ProductInfoDTO> consumer = invocation.getArgument(0);
+            products.forEach(consumer);
+            return null;
+        }).when(productService).streamAllInfo(any());
+
+        MvcResult asyncResult = mockMvc.perform(get("/products/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult mvcResult = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", ProductController.APPLICATION_NDJSON))
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getContentAsString()).isEqualTo(
+                objectMapper.writeValueAsString(products.get(0)) + "\n"
+                        + objectMapper.writeValueAsString(products.get(1)) + "\n"
+        );
+        verify(productService).streamAllInfo(any());
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canSearchProducts_andReturn200() throws Exception {
+
+        List<ProductInfoDTO> products = List.of(new ProductInfoDTO(1L, "phone", "d1", "s1", "c1", 1.0));
+        when(productService.search("pho", ProductController.DEFAULT_SEARCH_RESULTS)).thenReturn(products);
+
+        MvcResult mvcResult = mockMvc.perform(get("/products/search")
+                        .param("q", "pho"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getContentAsString()).isEqualToIgnoringWhitespace(
+                objectMapper.writeValueAsString(products)
+        );
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "ADMIN" })
+    void canImportProducts_andReturn200() throws Exception {
+
+        ProductImportResultDTO result = new ProductImportResultDTO();
+        result.setImported(1);
+        when(productService.importProducts(any())).thenReturn(result);
+
+        MvcResult mvcResult = mockMvc.perform(post("/products/import")
+                        .contentType("text/csv")
+                        .content("name,description,sku,categoryId,price\nPhone,Screen,s1,3,1.5\n"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getContentAsString()).isEqualToIgnoringWhitespace(
+                objectMapper.writeValueAsString(result)
+        );
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "ADMIN" })
+    void canNotImportProductsWithoutHeader_andReturn400() throws Exception {
+
+        mockMvc.perform(post("/products/import")
+                        .contentType("text/csv")
+                        .content("Phone,Screen,s1,3,1.5\n"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canGetFilteredProducts_andReturn200() throws Exception {
+
+        mockMvc.perform(get("/products")
+                        .param("category", "3")
+                        .param("minPrice", "10")
+                        .param("maxPrice", "50"))
                 .andExpect(status().isOk());
 
-        verify(productMapper).toProductInfoDto(products.get(0));
-        verify(productMapper).toProductInfoDto(products.get(1));
+        verify(productService).retrieveInfoMatching(3L, 10.0, 50.0, 0L, ProductController.DEFAULT_PAGE_SIZE);
+        verify(productService, never()).retrieveAllInfo();
+    }
+
+    @Test
+    @WithMockUser(username = "test", roles = { "USER" })
+    void canGetProductFacets_andReturn200() throws Exception {
+
+        ProductFacetsDTO facets = new ProductFacetsDTO();
+        facets.setTotal(2L);
+        facets.setCategories(Map.of(3L, 2L));
+        facets.setPriceBuckets(List.of(new PriceBucketDTO(0.0, 10.0, 2L)));
+        when(productService.retrieveFacets(null, 5.0, null)).thenReturn(facets);
 
+        MvcResult mvcResult = mockMvc.perform(get("/products/facets")
+                        .param("minPrice", "5"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getContentAsString()).isEqualToIgnoringWhitespace(
+                objectMapper.writeValueAsString(facets)
+        );
     }
 
     @Test
@@ -79,11 +257,11 @@ class ProductControllerTest {
     @Test
     @WithMockUser(username = "test", roles = { "USER" })
     void canGetProduct_andReturn200() throws Exception {
-        Product product = new Product();
+        ProductView product = new ProductView(1L, "p1", "d1", "s1", "c1", 1.0);
         ProductInfoDTO expectedProduct = new ProductInfoDTO();
         expectedProduct.setName("p1");
 
-        when(productService.retrieveById(eq(1L))).thenReturn(product);
+        when(productService.retrieveViewById(eq(1L))).thenReturn(product);
         when(productMapper.toProductInfoDto(eq(product))).thenReturn(expectedProduct);
 
         MvcResult mvcResult = mockMvc.perform(get("/products/{productId}", 1L))
@@ -109,7 +287,7 @@ class ProductControllerTest {
     @WithMockUser(username = "test", roles = { "USER" })
     void canNotGetProductWithWrongId_andReturn404() throws Exception {
 
-        when(productService.retrieveById(eq(2L))).thenThrow(new NoSuchElementException("No such Product"));
+        when(productService.retrieveViewById(eq(2L))).thenThrow(new NoSuchElementException("No such Product"));
         MvcResult mvcResult  = mockMvc.perform(get("/products/{productId}", 2L))
                 .andExpect(status().isNotFound())
                 .andReturn();
@@ -0,0 +1,51 @@
+package com.mythesis.eshop.model.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+class ProductCatalogCacheTest {
+
+    private final ProductCatalogCache underTest = new ProductCatalogCache(100, Duration.ofMinutes(1));
+
+    @Test
+    void canServeRepeatedReadsFromMemory() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            underTest.get(1L, id -> {
+                loads.incrementAndGet();
+                return new ProductView(id, "p1", "d1", "s1", "c1", 1.0);
+            });
+        }
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(underTest.hitCount()).isEqualTo(2L);
+        assertThat(underTest.missCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void canReloadAfterInvalidation() {
+        underTest.get(1L, id -> new ProductView(id, "old", "d1", "s1", "c1", 1.0));
+        underTest.invalidate(1L);
+
+        ProductView view = underTest.get(1L, id -> new ProductView(id, "new", "d1", "s1", "c1", 1.0));
+
+        assertThat(view.getName()).isEqualTo("new");
+    }
+
+    @Test
+    void canDropViewLoadedConcurrentlyWithInvalidation() {
+        underTest.get(1L, id -> {
+            underTest.invalidate(id);
+            return new ProductView(id, "stale", "d1", "s1", "c1", 1.0);
+        });
+
+        ProductView view = underTest.get(1L, id -> new ProductView(id, "fresh", "d1", "s1", "c1", 1.0));
+
+        assertThat(view.getName()).isEqualTo("fresh");
+    }
+}
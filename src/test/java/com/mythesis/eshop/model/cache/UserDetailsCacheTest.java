@@ -0,0 +1,70 @@
+package com.mythesis.eshop.model.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+class UserDetailsCacheTest {
+
+    private final UserDetailsCache underTest = new UserDetailsCache(100, Duration.ofMinutes(1));
+
+    @Test
+    void canServeRepeatedLoadsFromMemory() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            underTest.get("chris", username -> {
+                loads.incrementAndGet();
+                return user(username, "hash");
+            });
+        }
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(underTest.hitCount()).isEqualTo(2L);
+        assertThat(underTest.missCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void erasedCredentialsDoNotLeakIntoCache() {
+        User first = (User) underTest.get("chris", username -> user(username, "hash"));
+        first.eraseCredentials();
+
+        UserDetails second = underTest.get("chris", username -> user(username, "other"));
+
+        assertThat(second.getPassword()).isEqualTo("hash");
+    }
+
+    @Test
+    void canReloadAfterInvalidation() {
+        underTest.get("chris", username -> user(username, "old"));
+        underTest.invalidate("chris");
+
+        UserDetails userDetails = underTest.get("chris", username -> user(username, "new"));
+
+        assertThat(userDetails.getPassword()).isEqualTo("new");
+    }
+
+    @Test
+    void canNotCacheMissingUser() {
+        assertThatThrownBy(() -> underTest.get("ghost", username -> {
+            throw new UsernameNotFoundException("User does not exist");
+        })).isInstanceOf(UsernameNotFoundException.class);
+
+        UserDetails userDetails = underTest.get("ghost", username -> user(username, "hash"));
+
+        assertThat(userDetails.getUsername()).isEqualTo("ghost");
+    }
+
+    private static UserDetails user(String username, String password) {
+        return new User(username, password, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+}
@@ -0,0 +1,104 @@
+package com.mythesis.eshop.model.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductImportReaderTest {
+
+    private final ProductImportReader underTest = new ProductImportReader(new ObjectMapper());
+
+    @Test
+    void canReadCsv() throws IOException {
+        List<ProductImportRow> rows = read(ProductImportReader.TEXT_CSV,
+                "sku,name,description,categoryId,price\n" +
+                "s1,Phone,\"Large, bright \"\"OLED\"\" screen\",3,199.5\n" +
+                "\n" +
+                "s2,Case,Leather,3,9\n");
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0).getLine()).isEqualTo(2L);
+        assertThat(rows.get(0).getProduct().getDescription()).isEqualTo("Large, bright \"OLED\" screen");
+        assertThat(rows.get(0).getProduct().getCategoryId()).isEqualTo(3L);
+        assertThat(rows.get(0).getProduct().getPrice()).isEqualTo(199.5);
+        assertThat(rows.get(1).getLine()).isEqualTo(4L);
+        assertThat(rows.get(1).getProduct().getSku()).isEqualTo("s2");
+    }
+
+    @Test
+    void canReportMalformedCsvRows() throws IOException {
+        List<ProductImportRow> rows = read(ProductImportReader.TEXT_CSV,
+                "name,description,sku,categoryId,price\n" +
+                "Phone,Screen,s1,3,cheap\n" +
+                "Phone,Screen,s2,x,1\n" +
+                "Phone,\"Screen,s3,3,1\n" +
+                "Phone,,s4,3\n");
+
+        assertThat(rows.get(0).getError()).isEqualTo("price must be a number");
+        assertThat(rows.get(1).getError()).isEqualTo("categoryId must be a number");
+        assertThat(rows.get(2).getError()).isEqualTo("Unterminated quoted field");
+        assertThat(rows.get(3).getError()).isNull();
+        assertThat(rows.get(3).getProduct().getDescription()).isNull();
+        assertThat(rows.get(3).getProduct().getPrice()).isNull();
+    }
+
+    @Test
+    void canNotReadCsvWithoutRequiredColumns() {
+        assertThatThrownBy(
+                () -> read(ProductImportReader.TEXT_CSV, "name,sku\nPhone,s1\n")
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("CSV header must contain name, description, sku, categoryId, price");
+    }
+
+    @Test
+    void canReadNdjson() throws IOException {
+        List<ProductImportRow> rows = read(ProductImportReader.APPLICATION_NDJSON,
+                "{\"name\":\"Phone\",\"description\":\"Screen\",\"sku\":\"s1\",\"categoryId\":3,\"price\":1.5}\n" +
+                "{\"name\":\"Phone\"\n");
+
+        assertThat(rows.get(0).getProduct().getSku()).isEqualTo("s1");
+        assertThat(rows.get(0).getProduct().getCategoryId()).isEqualTo(3L);
+        assertThat(rows.get(1).getLine()).isEqualTo(2L);
+        assertThat(rows.get(1).getError()).isEqualTo("Malformed JSON");
+    }
+
+    @Test
+    void canReportNdjsonLinesThatAreNotObjects() throws IOException {
+        List<ProductImportRow> rows = read(ProductImportReader.APPLICATION_NDJSON,
+                "null\n" +
+                "[1, 2]\n" +
+                "\"s1\"\n");
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows).allSatisfy(row -> {
+            assertThat(row.getError()).isEqualTo("Malformed JSON");
+            assertThat(row.getProduct()).isNull();
+        });
+    }
+
+    @Test
+    void canNotReadOtherContentTypes() {
+        assertThatThrownBy(
+                () -> read("application/xml", "<products/>")
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Import accepts text/csv or application/x-ndjson");
+    }
+
+    private List<ProductImportRow> read(String contentType, String body) throws IOException {
+        Iterator<ProductImportRow> iterator = underTest.read(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), contentType);
+
+        List<ProductImportRow> rows = new ArrayList<>();
+        iterator.forEachRemaining(rows::add);
+        return rows;
+    }
+}
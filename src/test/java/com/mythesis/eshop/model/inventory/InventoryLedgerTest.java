@@ -0,0 +1,149 @@
+package com.mythesis.eshop.model.inventory;
+
+import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.model.repository.*;
+import com.mythesis.eshop.model.service.CartItemService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "eshop.inventory.ledger.enabled=true",
+        "eshop.inventory.flush-interval-ms=3600000",
+        "spring.datasource.url=jdbc:h2:mem:inventory;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000"
+})
+class InventoryLedgerTest {
+
+    private static final int THREADS = 64;
+    private static final int CHECKOUTS_PER_THREAD = 4;
+    private static final int INITIAL_STOCK = 100;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private CartItemService cartItemService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private StockLedgerRepository stockLedgerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentCheckoutsOfTrackedSkuNeverOversell() throws Exception {
+        Product hotProduct = product(INITIAL_STOCK);
+        inventoryLedger.track(List.of(hotProduct.getId()));
+
+        List<Long> cartIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            cartIds.add(cart(hotProduct, 1, 1_000_000.0));
+        }
+
+        AtomicInteger succeeded = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Long cartId : cartIds) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < CHECKOUTS_PER_THREAD; i++) {
+                    try {
+                        cartItemService.purchaseAllInCartItems(cartId);
+                        succeeded.incrementAndGet();
+                    } catch (IllegalStateException ex) {
+                        /* sold out */
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        executor.shutdown();
+
+        System.out.printf("%d checkouts on one tracked SKU from %d threads: %d succeeded, %.0f checkouts/s%n",
+                THREADS * CHECKOUTS_PER_THREAD, THREADS, succeeded.get(), THREADS * CHECKOUTS_PER_THREAD / seconds);
+
+        assertThat(succeeded.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(inventoryLedger.availableStock(hotProduct.getId())).isZero();
+
+        inventoryLedger.flush();
+        assertThat(productRepository.findById(hotProduct.getId()).get().getInStock()).isZero();
+        assertThat(stockLedgerRepository.sumQuantityByProductIdIn(List.of(hotProduct.getId()))).isEmpty();
+    }
+
+    @Test
+    void rolledBackCheckoutReleasesReservation() {
+        Product hotProduct = product(10);
+        inventoryLedger.track(List.of(hotProduct.getId()));
+        Long poorCart = cart(hotProduct, 3, 0.0);
+
+        assertThatThrownBy(() -> cartItemService.purchaseAllInCartItems(poorCart))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(inventoryLedger.availableStock(hotProduct.getId())).isEqualTo(10);
+    }
+
+    @Test
+    void restartRecoversUnflushedReservations() {
+        Product hotProduct = product(10);
+        inventoryLedger.track(List.of(hotProduct.getId()));
+        cartItemService.purchaseAllInCartItems(cart(hotProduct, 3, 1_000_000.0));
+
+        InventoryLedger restarted = new InventoryLedger(true, List.of(hotProduct.getId()),
+                productRepository, stockLedgerRepository, transactionManager);
+        restarted.recover();
+
+        assertThat(productRepository.findById(hotProduct.getId()).get().getInStock()).isEqualTo(10);
+        assertThat(restarted.availableStock(hotProduct.getId())).isEqualTo(7);
+
+        restarted.flush();
+        assertThat(productRepository.findById(hotProduct.getId()).get().getInStock()).isEqualTo(7);
+    }
+
+    private Product product(int stock) {
+        Category category = categoryRepository.save(new Category("Flash sale"));
+        Product product = new Product("hot", "hot item", "hot-" + System.nanoTime(), category, 1.0);
+        product.setInStock(stock);
+        return productRepository.save(product);
+    }
+
+    private Long cart(Product product, int quantity, double balance) {
+        User user = new User("buyer-" + System.nanoTime(), "1234", "buyer", "buyer", "larisa",
+                String.valueOf(System.nanoTime()), balance);
+        user.setRole("ROLE_USER");
+        Cart cart = cartRepository.save(new Cart(userRepository.save(user), 0.0));
+        cartItemRepository.save(new CartItem(cart, product, quantity));
+        return cart.getId();
+    }
+}
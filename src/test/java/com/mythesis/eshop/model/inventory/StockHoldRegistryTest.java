@@ -0,0 +1,156 @@
+package com.mythesis.eshop.model.inventory;
+
+import com.mythesis.eshop.model.entity.Cart;
+import com.mythesis.eshop.model.entity.CartItem;
+import com.mythesis.eshop.model.entity.Product;
+import com.mythesis.eshop.model.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockHoldRegistryTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private InventoryLedger inventoryLedger;
+
+    private StockHoldRegistry registry(Duration ttl){
+        /* Products below are untracked by the ledger unless a test says otherwise, so stock comes from the database. */
+        lenient().when(inventoryLedger.availableStock(anyLong())).thenReturn(null);
+        return new StockHoldRegistry(true, ttl, 1, productRepository, inventoryLedger);
+    }
+
+    @Test
+    void canHoldUpToTheAvailableStock(){
+        StockHoldRegistry underTest = registry(Duration.ofMinutes(15));
+        when(productRepository.findStock(List.of(1L))).thenReturn(Map.of(1L, 5));
+
+        underTest.hold(10L, 1L, 3);
+        underTest.hold(11L, 1L, 2);
+
+        assertThat(underTest.heldQuantity(1L)).isEqualTo(5);
+        assertThatThrownBy(
+                ()-> underTest.hold(12L, 1L, 1)
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Not enough stock to hold");
+    }
+
+    @Test
+    void canReplaceAnItemsOwnHold(){
+        StockHoldRegistry underTest = registry(Duration.ofMinutes(15));
+        when(inventoryLedger.availableStock(1L)).thenReturn(5);
+
+        underTest.hold(10L, 1L, 3);
+        underTest.hold(10L, 1L, 5);
+
+        assertThat(underTest.heldQuantity(1L)).isEqualTo(5);
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void canReportOnlyWhatOthersHold(){
+        StockHoldRegistry underTest = registry(Duration.ofMinutes(15));
+        when(productRepository.findStock(List.of(1L))).thenReturn(Map.of(1L, 10));
+        underTest.hold(10L, 1L, 3);
+        underTest.hold(11L, 1L, 4);
+
+        assertThat(underTest.heldByOthers(List.of(10L), List.of(1L, 2L))).containsExactly(Map.entry(1L, 4));
+        assertThat(underTest.heldByOthers(List.of(10L, 11L), List.of(1L))).isEmpty();
+    }
+
+    @Test
+    void canReleaseHolds(){
+        StockHoldRegistry underTest = registry(Duration.ofMinutes(15));
+        when(productRepository.findStock(List.of(1L))).thenReturn(Map.of(1L, 10));
+        underTest.hold(10L, 1L, 3);
+
+        underTest.release(List.of(10L));
+        underTest.release(List.of(10L));
+
+        assertThat(underTest.heldQuantity(1L)).isZero();
+    }
+
+    @Test
+    void canExpireHolds() throws InterruptedException {
+        StockHoldRegistry underTest = registry(Duration.ZERO);
+        when(productRepository.findStock(List.of(1L))).thenReturn(Map.of(1L, 10));
+        underTest.hold(10L, 1L, 3);
+
+        Thread.sleep(5);
+        underTest.expireHolds();
+
+        assertThat(underTest.heldQuantity(1L)).isZero();
+    }
+
+    @Test
+    void willRestorePreviousHoldsWhenABatchCannotBeHeld(){
+        StockHoldRegistry underTest = registry(Duration.ofMinutes(15));
+        when(inventoryLedger.availableStock(1L)).thenReturn(10);
+        when(inventoryLedger.availableStock(2L)).thenReturn(5);
+        underTest.hold(10L, 1L, 3);
+        underTest.hold(11L, 2L, 2);
+
+        assertThatThrownBy(
+                ()-> underTest.holdAll(List.of(cartItem(10L, 1L, 6), cartItem(11L, 2L, 9)))
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Not enough stock to hold");
+
+        assertThat(underTest.heldQuantity(1L)).isEqualTo(3);
+        assertThat(underTest.heldQuantity(2L)).isEqualTo(2);
+        assertThat(underTest.heldByOthers(List.of(), List.of(1L, 2L))).isEqualTo(Map.of(1L, 3, 2L, 2));
+    }
+
+    @Test
+    void willRestorePreviousHoldsWhenTheTransactionRollsBack(){
+        StockHoldRegistry underTest = registry(Duration.ofMinutes(15));
+        when(inventoryLedger.availableStock(1L)).thenReturn(10);
+        underTest.hold(10L, 1L, 3);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            underTest.holdAll(List.of(cartItem(10L, 1L, 6), cartItem(12L, 1L, 1)));
+            assertThat(underTest.heldQuantity(1L)).isEqualTo(7);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(underTest.heldQuantity(1L)).isEqualTo(3);
+        assertThat(underTest.heldByOthers(List.of(10L), List.of(1L))).isEmpty();
+    }
+
+    private static CartItem cartItem(Long cartItemId, Long productId, int quantity){
+        Product product = new Product();
+        product.setId(productId);
+        CartItem cartItem = new CartItem(new Cart(), product, quantity);
+        cartItem.setId(cartItemId);
+        return cartItem;
+    }
+
+    @Test
+    void canIgnoreHoldsWhenDisabled(){
+        StockHoldRegistry underTest = new StockHoldRegistry(false, Duration.ofMinutes(15), 1000, productRepository, inventoryLedger);
+
+        underTest.hold(10L, 1L, 3);
+
+        assertThat(underTest.heldQuantity(1L)).isZero();
+        assertThat(underTest.heldByOthers(List.of(), List.of(1L))).isEmpty();
+        verifyNoInteractions(productRepository, inventoryLedger);
+    }
+}
@@ -0,0 +1,63 @@
+package com.mythesis.eshop.model.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimerWheelTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    void canReturnItemsOnceTheirDeadlinePasses(){
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, 0);
+        wheel.schedule("early", 25);
+        wheel.schedule("late", 55);
+
+        assertThat(wheel.advance(20)).isEmpty();
+        assertThat(wheel.advance(30)).containsExactly("early");
+        assertThat(wheel.advance(50)).isEmpty();
+        assertThat(wheel.advance(60)).containsExactly("late");
+        assertThat(wheel.advance(200)).isEmpty();
+    }
+
+    @Test
+    void canCarryDeadlinesBeyondOneRotation(){
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 4, 0);
+        wheel.schedule("far", 100);
+
+        assertThat(wheel.advance(40)).isEmpty();
+        assertThat(wheel.advance(90)).isEmpty();
+        assertThat(wheel.advance(100)).containsExactly("far");
+    }
+
+    @Test
+    void canExpireEverythingAfterALongStall(){
+        TimerWheel<Integer> wheel = new TimerWheel<>(TICK, 4, 0);
+        for (int i = 1; i <= 20; i++) {
+            wheel.schedule(i, i * TICK);
+        }
+
+        assertThat(wheel.advance(10_000)).hasSize(20);
+    }
+
+    @Test
+    void canScheduleAnOverdueItemForTheNextTick(){
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, 0);
+        wheel.advance(100);
+        wheel.schedule("overdue", 50);
+
+        assertThat(wheel.advance(110)).containsExactly("overdue");
+    }
+
+    @Test
+    void canNotCreateWithoutTicksOrSlots(){
+        assertThatThrownBy(
+                ()-> new TimerWheel<String>(0, 8, 0)
+        ).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(
+                ()-> new TimerWheel<String>(TICK, 0, 0)
+        ).isInstanceOf(IllegalArgumentException.class);
+    }
+}
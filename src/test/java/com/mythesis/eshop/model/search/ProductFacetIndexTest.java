@@ -0,0 +1,72 @@
+package com.mythesis.eshop.model.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex underTest;
+
+    @BeforeEach
+    void setUp(){
+        underTest = new ProductFacetIndex();
+        underTest.index(1L, 1L, 5.0);
+        underTest.index(2L, 1L, 10.0);
+        underTest.index(3L, 1L, 75.0);
+        underTest.index(4L, 2L, 24.99);
+        underTest.index(5L, 2L, 2500.0);
+    }
+
+    @Test
+    void canCountPerCategory(){
+        assertThat(underTest.countByCategory(null, null)).isEqualTo(Map.of(1L, 3L, 2L, 2L));
+    }
+
+    @Test
+    void canCountPerCategoryWithinPriceRange(){
+        assertThat(underTest.countByCategory(10.0, 100.0)).isEqualTo(Map.of(1L, 2L, 2L, 1L));
+        assertThat(underTest.countByCategory(null, 10.0)).isEqualTo(Map.of(1L, 2L));
+        assertThat(underTest.countByCategory(25.0, null)).isEqualTo(Map.of(1L, 1L, 2L, 1L));
+        assertThat(underTest.countByCategory(6.0, 9.0)).isEmpty();
+    }
+
+    @Test
+    void canCountPerPriceBucket(){
+        assertThat(underTest.countByPriceBucket(null)).containsExactly(1, 2, 0, 1, 0, 0, 0, 1);
+        assertThat(underTest.countByPriceBucket(2L)).containsExactly(0, 1, 0, 0, 0, 0, 0, 1);
+        assertThat(underTest.countByPriceBucket(9L)).containsExactly(0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    void canCountMatchingAllFilters(){
+        assertThat(underTest.count(null, null, null)).isEqualTo(5L);
+        assertThat(underTest.count(1L, 5.0, 10.0)).isEqualTo(2L);
+        assertThat(underTest.count(null, 20.0, 3000.0)).isEqualTo(3L);
+        assertThat(underTest.count(null, 30.0, 20.0)).isZero();
+    }
+
+    @Test
+    void canMoveAndRemoveProducts(){
+        underTest.index(3L, 2L, 8.0);
+        underTest.remove(5L);
+
+        assertThat(underTest.countByCategory(null, null)).isEqualTo(Map.of(1L, 2L, 2L, 2L));
+        assertThat(underTest.countByPriceBucket(null)).containsExactly(2, 2, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    void canKeepChangesMadeDuringRebuild(){
+        underTest.rebuild(consumer -> {
+            consumer.accept(new Object[] { 1L, 1L, 5.0 });
+            consumer.accept(new Object[] { 2L, 1L, 10.0 });
+            underTest.index(6L, 3L, 300.0);
+            underTest.remove(2L);
+        });
+
+        assertThat(underTest.countByCategory(null, null)).isEqualTo(Map.of(1L, 1L, 3L, 1L));
+    }
+}
@@ -0,0 +1,103 @@
+package com.mythesis.eshop.model.search;
+
+import com.mythesis.eshop.dto.ProductInfoDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex underTest;
+
+    @BeforeEach
+    void setUp(){
+        underTest = new ProductSearchIndex();
+        underTest.index(1L, "Smart phone", "A phone with a large screen", "PH-100");
+        underTest.index(2L, "Phone case", "Leather case", "CS-200");
+        underTest.index(3L, "Laptop", "Comes with a free phone stand", "LP-300");
+    }
+
+    @Test
+    void canRankNameAboveDescription(){
+        assertThat(underTest.search("phone", 10)).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void canMatchPrefixes(){
+        assertThat(underTest.search("lap", 10)).containsExactly(3L);
+        assertThat(underTest.search("Ph", 10)).startsWith(1L);
+    }
+
+    @Test
+    void canRequireEveryToken(){
+        assertThat(underTest.search("phone leather", 10)).containsExactly(2L);
+        assertThat(underTest.search("phone tablet", 10)).isEmpty();
+    }
+
+    @Test
+    void canMatchSku(){
+        assertThat(underTest.search("cs-200", 10)).containsExactly(2L);
+    }
+
+    @Test
+    void canLimitHits(){
+        assertThat(underTest.search("phone", 2)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void canReindexAndRemove(){
+        underTest.index(2L, "Tablet sleeve", "Leather sleeve", "CS-200");
+        underTest.remove(3L);
+
+        assertThat(underTest.search("phone", 10)).containsExactly(1L);
+        assertThat(underTest.search("sleeve", 10)).containsExactly(2L);
+        assertThat(underTest.size()).isEqualTo(2);
+    }
+
+    @Test
+    void canKeepTheMostCommonPrefixExpansions(){
+        for (long id = 10; id < 80; id++) {
+            underTest.index(id, "Widget zaa" + id, "", "W-" + id);
+        }
+        underTest.index(90L, "Zazzle mug", "", "ZM-90");
+        underTest.index(91L, "Zazzle cup", "", "ZM-91");
+
+        assertThat(underTest.search("za", 100)).contains(90L, 91L);
+    }
+
+    @Test
+    void canRemoveFromTheMiddleOfPostings(){
+        for (long id = 10; id < 20; id++) {
+            underTest.index(id, "Cable", "", "CB-" + id);
+        }
+        underTest.index(5L, "Cable", "", "CB-5");
+        underTest.remove(14L);
+        underTest.index(12L, "Charger", "", "CB-12");
+
+        assertThat(underTest.search("cable", 20)).containsExactlyInAnyOrder(5L, 10L, 11L, 13L, 15L, 16L, 17L, 18L, 19L);
+        assertThat(underTest.search("charger", 20)).containsExactly(12L);
+    }
+
+    @Test
+    void canKeepChangesMadeDuringRebuild(){
+        underTest.rebuild(consumer -> {
+            consumer.accept(new ProductInfoDTO(1L, "Smart phone", "", "PH-100", null, null));
+            consumer.accept(new ProductInfoDTO(4L, "Monitor", "", "MN-400", null, null));
+            underTest.index(5L, "Keyboard", "", "KB-500");
+            underTest.remove(4L);
+        });
+
+        assertThat(underTest.search("monitor", 10)).isEmpty();
+        assertThat(underTest.search("keyboard", 10)).containsExactly(5L);
+        assertThat(underTest.search("laptop", 10)).isEmpty();
+        assertThat(underTest.size()).isEqualTo(2);
+    }
+
+    @Test
+    void canIgnoreBlankQueries(){
+        assertThat(underTest.search("  - ", 10)).isEqualTo(List.of());
+    }
+}
@@ -0,0 +1,99 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.model.repository.*;
+import io.micrometer.core.instrument.Metrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class AbandonedCartReaperTest {
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void idleCartsAndTheirItemsAreDeletedInChunks(){
+        Long firstIdle = cartWithItems("idle-a", 3);
+        Long secondIdle = cartWithItems("idle-b", 2);
+        Long active = cartWithItems("active", 1);
+        idleFor(firstIdle, Duration.ofDays(60));
+        idleFor(secondIdle, Duration.ofDays(45));
+        double itemsBefore = reclaimed("e_cart_item");
+
+        AbandonedCartReaper underTest = new AbandonedCartReaper(true, Duration.ofDays(30), 1, Duration.ZERO,
+                cartRepository, cartItemRepository, transactionManager);
+
+        assertThat(underTest.reapIdleCarts()).isEqualTo(2);
+
+        assertThat(cartRepository.existsById(firstIdle)).isFalse();
+        assertThat(cartRepository.existsById(secondIdle)).isFalse();
+        assertThat(cartItemRepository.findAllByCartId(firstIdle)).isEmpty();
+        assertThat(cartRepository.existsById(active)).isTrue();
+        assertThat(cartItemRepository.findAllByCartId(active)).hasSize(1);
+        assertThat(reclaimed("e_cart_item") - itemsBefore).isEqualTo(5);
+    }
+
+    @Test
+    void nothingIsDeletedWhenNoCartIsIdle(){
+        Long recent = cartWithItems("recent", 1);
+        idleFor(recent, Duration.ofDays(29));
+
+        AbandonedCartReaper underTest = new AbandonedCartReaper(true, Duration.ofDays(30), 10, Duration.ZERO,
+                cartRepository, cartItemRepository, transactionManager);
+
+        underTest.reapIdleCarts();
+
+        assertThat(cartRepository.existsById(recent)).isTrue();
+    }
+
+    private double reclaimed(String table){
+        return Metrics.globalRegistry.get("cart.reaper.reclaimed").tag("table", table).counter().count();
+    }
+
+    private void idleFor(Long cartId, Duration idle){
+        jdbcTemplate.update("UPDATE e_cart SET updated_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minus(idle)), cartId);
+    }
+
+    private Long cartWithItems(String name, int items){
+        Category category = categoryRepository.save(new Category("Reaper"));
+        User user = new User(name + System.nanoTime(), "1234", name, name, "larisa",
+                String.valueOf(System.nanoTime()), 100.0);
+        user.setRole("ROLE_USER");
+        Cart cart = cartRepository.save(new Cart(userRepository.save(user), 0.0));
+        for (int i = 0; i < items; i++) {
+            Product product = new Product(name + i, "description", name + i + "-" + System.nanoTime(), category, 1.0);
+            product.setInStock(10);
+            cartItemRepository.save(new CartItem(cart, productRepository.save(product), 1));
+        }
+        return cart.getId();
+    }
+}
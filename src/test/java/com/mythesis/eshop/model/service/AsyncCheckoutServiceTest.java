@@ -0,0 +1,168 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.dto.CheckoutStatusDTO;
+import com.mythesis.eshop.exception.ServiceOverloadedException;
+import com.mythesis.eshop.model.entity.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncCheckoutServiceTest {
+
+    @Mock
+    private CartItemService cartItemService;
+    @Mock
+    private ShippingService shippingService;
+
+    private AsyncCheckoutService underTest;
+
+    @AfterEach
+    void tearDown(){
+        if (underTest != null)
+            underTest.shutdown();
+    }
+
+    @Test
+    void canRunAllStagesInBackground() throws Exception {
+        underTest = service(10);
+        Order order = new Order();
+        order.setId(5L);
+        order.setTotal(20.0);
+        when(cartItemService.purchase(eq(1L), any())).thenAnswer(invocation -> {
+            Consumer<CheckoutStage> progress = invocation.getArgument(1);
+            progress.accept(CheckoutStage.ORDER);
+            progress.accept(CheckoutStage.PAYMENT);
+            progress.accept(CheckoutStage.STOCK);
+            return order;
+        });
+
+        CheckoutStatusDTO submitted = underTest.submit(1L, "key-1");
+        CheckoutStatusDTO finished = awaitFinished(submitted.getId());
+
+        assertThat(finished.getState()).isEqualTo(CheckoutStatusDTO.State.COMPLETED);
+        assertThat(finished.getOrderId()).isEqualTo(5L);
+        assertThat(finished.getTotal()).isEqualTo(20.0);
+        verify(shippingService).ship(order);
+        assertThat(underTest.pendingCount()).isZero();
+    }
+
+    @Test
+    void canRetryTransientFailure() throws Exception {
+        underTest = service(10);
+        when(cartItemService.purchase(eq(1L), any()))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenReturn(new Order());
+
+        CheckoutStatusDTO finished = awaitFinished(underTest.submit(1L, "key-1").getId());
+
+        assertThat(finished.getState()).isEqualTo(CheckoutStatusDTO.State.COMPLETED);
+        verify(cartItemService, times(2)).purchase(eq(1L), any());
+    }
+
+    @Test
+    void willFailWithoutRetryOnBusinessError() throws Exception {
+        underTest = service(10);
+        when(cartItemService.purchase(eq(1L), any())).thenAnswer(invocation -> {
+            Consumer<CheckoutStage> progress = invocation.getArgument(1);
+            progress.accept(CheckoutStage.PAYMENT);
+            throw new IllegalStateException("Not enough Balance");
+        });
+
+        CheckoutStatusDTO finished = awaitFinished(underTest.submit(1L, "key-1").getId());
+
+        assertThat(finished.getState()).isEqualTo(CheckoutStatusDTO.State.FAILED);
+        assertThat(finished.getStage()).isEqualTo(CheckoutStage.PAYMENT);
+        assertThat(finished.getError()).isEqualTo("Not enough Balance");
+        verify(cartItemService, times(1)).purchase(eq(1L), any());
+        verifyNoInteractions(shippingService);
+    }
+
+    @Test
+    void willFailUnshippableCartBeforePayment() throws Exception {
+        underTest = service(10);
+        when(cartItemService.purchase(eq(1L), any())).thenAnswer(invocation -> {
+            Consumer<CheckoutStage> progress = invocation.getArgument(1);
+            progress.accept(CheckoutStage.ORDER);
+            throw new IllegalStateException("We cannot serve more than 10 products at this time");
+        });
+
+        CheckoutStatusDTO finished = awaitFinished(underTest.submit(1L, "key-1").getId());
+
+        assertThat(finished.getState()).isEqualTo(CheckoutStatusDTO.State.FAILED);
+        assertThat(finished.getStage()).isEqualTo(CheckoutStage.ORDER);
+        assertThat(finished.getOrderId()).isNull();
+        verifyNoInteractions(shippingService);
+    }
+
+    @Test
+    void canReturnSameCheckoutForRepeatedKey() throws Exception {
+        underTest = service(10);
+        when(cartItemService.purchase(eq(1L), any())).thenReturn(new Order());
+
+        CheckoutStatusDTO first = underTest.submit(1L, "key-1");
+        CheckoutStatusDTO second = underTest.submit(1L, "key-1");
+        awaitFinished(first.getId());
+
+        assertThat(second.getId()).isEqualTo(first.getId());
+        verify(cartItemService, times(1)).purchase(eq(1L), any());
+    }
+
+    @Test
+    void willRejectWhenQueueIsFull() throws Exception {
+        underTest = service(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cartItemService.purchase(eq(1L), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new Order();
+        });
+
+        CheckoutStatusDTO first = underTest.submit(1L, "key-1");
+
+        assertThatThrownBy(() -> underTest.submit(2L, "key-2"))
+                .isInstanceOf(ServiceOverloadedException.class);
+        release.countDown();
+        awaitFinished(first.getId());
+    }
+
+    @Test
+    void willThrowWhenCheckoutIsUnknown(){
+        underTest = service(10);
+
+        assertThatThrownBy(() -> underTest.retrieveStatus("missing"))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessage("No such Checkout");
+    }
+
+    private AsyncCheckoutService service(int queueCapacity){
+        return new AsyncCheckoutService(cartItemService, shippingService, 2, queueCapacity, 3,
+                Duration.ofMillis(1), Duration.ofMinutes(1));
+    }
+
+    private CheckoutStatusDTO awaitFinished(String checkoutId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        CheckoutStatusDTO status = underTest.retrieveStatus(checkoutId);
+        while (status.getState() != CheckoutStatusDTO.State.COMPLETED
+                && status.getState() != CheckoutStatusDTO.State.FAILED
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            status = underTest.retrieveStatus(checkoutId);
+        }
+        return status;
+    }
+}
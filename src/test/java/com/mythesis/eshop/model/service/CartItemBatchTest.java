@@ -0,0 +1,202 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.dto.CartItemOperationDTO;
+import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.model.repository.*;
+import com.mythesis.eshop.support.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+
+@SpringBootTest
+class CartItemBatchTest {
+
+    private static final int PRODUCTS = 20;
+
+    @Autowired
+    private CartItemService cartItemService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Test
+    void bundleIsAddedWithBatchedStatements(){
+        Cart cart = newCart("bundle");
+        List<Product> products = newProducts("bundle", PRODUCTS);
+
+        List<CartItemOperationDTO> operations = new ArrayList<>();
+        for (Product product : products) {
+            operations.add(operation(CartItemOperationDTO.Type.ADD, null, product.getId(), 2));
+        }
+
+        SqlStatementCounter.reset();
+        cartItemService.applyOperations(cart.getId(), operations);
+
+        assertThat(SqlStatementCounter.count("insert")).isEqualTo(1);
+        assertThat(SqlStatementCounter.count("update")).isEqualTo(1);
+        Cart updated = cartService.retrieveById(cart.getId());
+        assertThat(updated.getItemCount()).isEqualTo(2 * PRODUCTS);
+        assertThat(updated.getTotal()).isEqualTo(2 * 5.0 * PRODUCTS);
+    }
+
+    @Test
+    void mixedOperationsAreAppliedInOrder(){
+        Cart cart = newCart("mixed");
+        List<Product> products = newProducts("mixed", 3);
+        CartItem kept = cartItemService.add(new CartItem(cart, products.get(0), 1));
+        CartItem dropped = cartItemService.add(new CartItem(cart, products.get(1), 4));
+
+        cartItemService.applyOperations(cart.getId(), List.of(
+                operation(CartItemOperationDTO.Type.UPDATE, kept.getId(), null, 3),
+                operation(CartItemOperationDTO.Type.REMOVE, dropped.getId(), null, null),
+                operation(CartItemOperationDTO.Type.ADD, null, products.get(2).getId(), 1)));
+
+        List<CartItem> items = cartItemRepository.findAllByCartId(cart.getId());
+        assertThat(items).extracting(ci -> ci.getProduct().getId(), CartItem::getQuantity)
+                .containsExactlyInAnyOrder(
+                        tuple(products.get(0).getId(), 3),
+                        tuple(products.get(2).getId(), 1));
+        Cart updated = cartService.retrieveById(cart.getId());
+        assertThat(updated.getItemCount()).isEqualTo(4);
+        assertThat(updated.getTotal()).isEqualTo(20.0);
+    }
+
+    @Test
+    void addingAProductTwiceKeepsOneItem(){
+        Cart cart = newCart("twice");
+        Product product = newProducts("twice", 1).get(0);
+        CartItem first = cartItemService.add(new CartItem(cart, product, 1));
+
+        CartItem second = cartItemService.add(new CartItem(cart, product, 2));
+        cartItemService.applyOperations(cart.getId(), List.of(
+                operation(CartItemOperationDTO.Type.ADD, null, product.getId(), 3),
+                operation(CartItemOperationDTO.Type.ADD, null, product.getId(), 4)));
+
+        assertThat(second.getId()).isEqualTo(first.getId());
+        List<CartItem> items = cartItemRepository.findAllByCartId(cart.getId());
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).getQuantity()).isEqualTo(10);
+        assertThat(cartService.retrieveById(cart.getId()).getTotal()).isEqualTo(50.0);
+    }
+
+    @Test
+    void removedProductCanBeAddedAgainInOneBatch(){
+        Cart cart = newCart("readd");
+        List<Product> products = newProducts("readd", 2);
+        CartItem first = cartItemService.add(new CartItem(cart, products.get(0), 1));
+        CartItem second = cartItemService.add(new CartItem(cart, products.get(1), 1));
+
+        cartItemService.applyOperations(cart.getId(), List.of(
+                operation(CartItemOperationDTO.Type.REMOVE, first.getId(), null, null),
+                operation(CartItemOperationDTO.Type.UPDATE, second.getId(), products.get(0).getId(), 2),
+                operation(CartItemOperationDTO.Type.ADD, null, products.get(1).getId(), 5)));
+
+        assertThat(cartItemRepository.findAllByCartId(cart.getId()))
+                .extracting(ci -> ci.getProduct().getId(), CartItem::getQuantity)
+                .containsExactlyInAnyOrder(
+                        tuple(products.get(0).getId(), 2),
+                        tuple(products.get(1).getId(), 5));
+    }
+
+    @Test
+    void concurrentAddsOfOneProductKeepOneItem() throws Exception {
+        Cart cart = newCart("concurrent");
+        Product product = newProducts("concurrent", 1).get(0);
+        int threads = 16;
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return cartItemService.add(new CartItem(cart, product, 1));
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        List<CartItem> items = cartItemRepository.findAllByCartId(cart.getId());
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).getQuantity()).isEqualTo(threads);
+        assertThat(cartService.retrieveById(cart.getId()).getItemCount()).isEqualTo(threads);
+    }
+
+    @Test
+    void databaseRejectsADuplicateItem(){
+        Cart cart = newCart("duplicate");
+        Product product = newProducts("duplicate", 1).get(0);
+        cartItemRepository.save(new CartItem(cart, product, 1));
+
+        assertThatThrownBy(
+                ()-> cartItemRepository.saveAndFlush(new CartItem(cart, product, 1))
+        ).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void failedOperationRollsBackTheBatch(){
+        Cart cart = newCart("rollback");
+        List<Product> products = newProducts("rollback", 1);
+
+        assertThatThrownBy(
+                ()-> cartItemService.applyOperations(cart.getId(), List.of(
+                        operation(CartItemOperationDTO.Type.ADD, null, products.get(0).getId(), 1),
+                        operation(CartItemOperationDTO.Type.REMOVE, Long.MAX_VALUE, null, null)))
+        ).isInstanceOf(NoSuchElementException.class);
+
+        assertThat(cartItemRepository.findAllByCartId(cart.getId())).isEmpty();
+        assertThat(cartService.retrieveById(cart.getId()).getItemCount()).isZero();
+    }
+
+    private CartItemOperationDTO operation(CartItemOperationDTO.Type type, Long cartItemId, Long productId, Integer quantity){
+        CartItemOperationDTO operation = new CartItemOperationDTO();
+        operation.setType(type);
+        operation.setCartItemId(cartItemId);
+        operation.setProductId(productId);
+        operation.setQuantity(quantity);
+        return operation;
+    }
+
+    private Cart newCart(String name){
+        User user = new User(name + System.nanoTime(), "1234", name, name, "larisa",
+                String.valueOf(System.nanoTime()), 100.0);
+        user.setRole("ROLE_USER");
+        return cartService.add(new Cart(userRepository.save(user), 0.0));
+    }
+
+    private List<Product> newProducts(String name, int count){
+        Category category = categoryRepository.save(new Category("Batch"));
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Product product = new Product(name + i, "description", name + i + "-" + System.nanoTime(), category, 5.0);
+            product.setInStock(100);
+            products.add(productRepository.save(product));
+        }
+        return products;
+    }
+}
@@ -0,0 +1,116 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.model.repository.*;
+import com.mythesis.eshop.support.SqlStatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class CartItemServiceQueryCountTest {
+
+    @Autowired
+    private CartItemService cartItemService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp(){
+        category = categoryRepository.save(new Category("Electronics"));
+    }
+
+    @Test
+    void checkoutStatementCountDoesNotGrowWithCartSize(){
+        Long smallCart = cartWithItems("small", 1);
+        Long largeCart = cartWithItems("large", 20);
+
+        SqlStatementCounter.reset();
+        cartItemService.purchaseAllInCartItems(smallCart);
+        long smallSelects = SqlStatementCounter.count("select");
+        long smallUpdates = SqlStatementCounter.count("update");
+
+        SqlStatementCounter.reset();
+        cartItemService.purchaseAllInCartItems(largeCart);
+        long largeSelects = SqlStatementCounter.count("select");
+        long largeUpdates = SqlStatementCounter.count("update");
+
+        /* The cart with its user and the items with their products; prices come from the fetched products. */
+        assertThat(smallSelects).isEqualTo(2);
+        assertThat(largeSelects).isEqualTo(smallSelects);
+        assertThat(largeUpdates).isEqualTo(smallUpdates);
+    }
+
+    @Test
+    void checkoutDecrementsStock(){
+        Long cartId = cartWithItems("stock", 3);
+
+        cartItemService.purchaseAllInCartItems(cartId);
+
+        for (CartItem cartItem : cartItemRepository.findAllByCartId(cartId)) {
+            Product product = productRepository.findById(cartItem.getProduct().getId()).get();
+            assertThat(product.getInStock()).isEqualTo(100 - cartItem.getQuantity());
+        }
+    }
+
+    @Test
+    void shippedCheckoutOfUnshippableCartChargesNothing(){
+        Long cartId = cartWithItems("unshippable", 11);
+        User user = cartRepository.findById(cartId).get().getUser();
+
+        assertThatThrownBy(() -> cartItemService.purchase(cartId, stage -> { }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("We cannot serve more than 10 products at this time");
+
+        assertThat(userRepository.findById(user.getId()).get().getBalance()).isEqualTo(1_000_000.0);
+        assertThat(orderRepository.findAllByUserId(user.getId())).isEmpty();
+        for (CartItem cartItem : cartItemRepository.findAllByCartId(cartId)) {
+            Product product = productRepository.findById(cartItem.getProduct().getId()).get();
+            assertThat(product.getInStock()).isEqualTo(100);
+        }
+    }
+
+    private Long cartWithItems(String name, int items){
+        User user = new User(name + System.nanoTime(), "1234", name, name, "larisa",
+                String.valueOf(System.nanoTime()), 1_000_000.0);
+        user.setRole("ROLE_USER");
+        user = userRepository.save(user);
+
+        Cart cart = cartRepository.save(new Cart(user, 0.0));
+
+        List<CartItem> cartItems = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            Product product = new Product(name + i, "description", name + i + "-" + System.nanoTime(), category, 10.0);
+            product.setInStock(100);
+            cartItems.add(new CartItem(cart, productRepository.save(product), 2));
+        }
+        cartItemRepository.saveAll(cartItems);
+
+        return cart.getId();
+    }
+}
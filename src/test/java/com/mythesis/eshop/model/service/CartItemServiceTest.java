@@ -1,8 +1,10 @@
 package com.mythesis.eshop.model.service;
 
-
+import com.mythesis.eshop.dto.CartItemOperationDTO;
 import com.mythesis.eshop.model.entity.Cart;
 import com.mythesis.eshop.model.entity.CartItem;
+import com.mythesis.eshop.model.entity.Product;
+import com.mythesis.eshop.model.inventory.StockHoldRegistry;
 import com.mythesis.eshop.model.repository.CartItemRepository;
 import com.mythesis.eshop.model.repository.CartRepository;
 import com.mythesis.eshop.util.CartItemMapper;
@@ -18,8 +20,11 @@ import org.springframework.dao.EmptyResultDataAccessException;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
@@ -37,6 +42,15 @@ class CartItemServiceTest {
     @Mock
     private CartItemMapper cartItemMapper;
 
+    @Mock
+    private StockHoldRegistry stockHolds;
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private ProductService productService;
+
     @InjectMocks
     private CartItemService underTest;
 
@@ -73,8 +87,7 @@ class CartItemServiceTest {
     @Test
     void canCreate(){
 
-        CartItem cartItem = new CartItem();
-        cartItem.setQuantity(23);
+        CartItem cartItem = cartItem(null, 7L, 4L, 23);
 
         when(validator.validate(cartItem)).thenReturn(new HashSet<>());
         when(cartItemRepository.save(cartItem)).thenReturn(cartItem);
@@ -82,9 +95,73 @@ class CartItemServiceTest {
         CartItem cartItem1 = underTest.add(cartItem);
 
         assertThat(cartItem1.getQuantity()).isEqualTo(cartItem.getQuantity());
+        verify(cartService).addToTotals(7L, 4L, 23);
+
+    }
+
+
+    @Test
+    void canIncreaseQuantityWhenAddingAProductAlreadyInCart(){
+        CartItem cartItem = cartItem(null, 7L, 4L, 2);
+        CartItem existing = cartItem(9L, 7L, 4L, 5);
+
+        when(validator.validate(cartItem)).thenReturn(new HashSet<>());
+        when(cartItemRepository.incrementQuantity(7L, 4L, 2)).thenReturn(1);
+        when(cartItemRepository.findByCartIdAndProductId(7L, 4L)).thenReturn(Optional.of(existing));
+
+        CartItem cartItem1 = underTest.add(cartItem);
+
+        assertThat(cartItem1).isSameAs(existing);
+        verify(cartService).retrieveByIdForUpdate(7L);
+        verify(cartItemRepository, never()).save(any());
+        verify(cartService).addToTotals(7L, 4L, 2);
+    }
+
+    @Test
+    void canNotUpdateToAProductAlreadyInCart(){
+        CartItem cartItem = cartItem(2L, 7L, 4L, 1);
+        Product otherProduct = new Product();
+        otherProduct.setId(5L);
+        CartItem changes = new CartItem();
+        changes.setProduct(otherProduct);
+
+        when(cartItemRepository.findById(2L)).thenReturn(Optional.of(cartItem));
+        when(cartItemRepository.findByCartIdAndProductId(7L, 5L)).thenReturn(Optional.of(cartItem(3L, 7L, 5L, 1)));
+
+        assertThatThrownBy(
+                ()-> underTest.update(2L, changes)
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Product is already in the Cart");
+        verify(cartItemRepository, never()).save(any());
+    }
+
+    @Test
+    void canHoldStockWhenAdding(){
+        CartItem cartItem = cartItem(9L, 7L, 4L, 3);
+
+        when(validator.validate(cartItem)).thenReturn(new HashSet<>());
+        when(cartItemRepository.save(cartItem)).thenReturn(cartItem);
+        when(stockHolds.isEnabled()).thenReturn(true);
+
+        underTest.add(cartItem);
 
+        verify(stockHolds).hold(9L, 4L, 3);
     }
 
+    @Test
+    void canNotAddWhenStockCannotBeHeld(){
+        CartItem cartItem = cartItem(9L, 7L, 4L, 3);
+
+        when(validator.validate(cartItem)).thenReturn(new HashSet<>());
+        when(cartItemRepository.save(cartItem)).thenReturn(cartItem);
+        when(stockHolds.isEnabled()).thenReturn(true);
+        doThrow(new IllegalArgumentException("Not enough stock to hold")).when(stockHolds).hold(9L, 4L, 3);
+
+        assertThatThrownBy(
+                ()-> underTest.add(cartItem)
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Not enough stock to hold");
+    }
 
     @Test
     void canNotAddWithViolations(){
@@ -100,24 +177,51 @@ class CartItemServiceTest {
     @Test
     void canUpdate(){
 
-        CartItem cartItem = new CartItem();
-        cartItem.setId(2L);
+        CartItem cartItem = cartItem(2L, 7L, 4L, 1);
+        CartItem changes = new CartItem();
+        changes.setQuantity(5);
 
         when(validator.validate(cartItem).isEmpty()).thenReturn(true);
         when(cartItemRepository.findById(2L)).thenReturn(Optional.of(cartItem));
-        doNothing().when(cartItemMapper).copyProperties(cartItem, cartItem);
+        doAnswer(invocation -> {
+            cartItem.setQuantity(5);
+            return null;
+        }).when(cartItemMapper).copyProperties(changes, cartItem);
         when(cartItemRepository.save(cartItem)).thenReturn(cartItem);
 
-        CartItem cartItem1 = underTest.update(2L, cartItem);
+        CartItem cartItem1 = underTest.update(2L, changes);
 
         assertThat(cartItem1.getId()).isEqualTo(cartItem.getId());
+        verify(cartService).addToTotals(7L, 4L, 4);
+    }
+
+    @Test
+    void canMoveTotalsWhenProductChanges(){
+        CartItem cartItem = cartItem(2L, 7L, 4L, 3);
+        Product otherProduct = new Product();
+        otherProduct.setId(5L);
+        CartItem changes = new CartItem();
+        changes.setProduct(otherProduct);
+
+        when(validator.validate(cartItem).isEmpty()).thenReturn(true);
+        when(cartItemRepository.findById(2L)).thenReturn(Optional.of(cartItem));
+        doAnswer(invocation -> {
+            cartItem.setProduct(otherProduct);
+            return null;
+        }).when(cartItemMapper).copyProperties(changes, cartItem);
+        when(cartItemRepository.save(cartItem)).thenReturn(cartItem);
+
+        underTest.update(2L, changes);
+
+        verify(cartService).addToTotals(7L, 4L, -3);
+        verify(cartService).addToTotals(7L, 5L, 3);
 
     }
 
 
     @Test
     void canNotUpdateWithViolations(){
-        CartItem cartItem = new CartItem();
+        CartItem cartItem = cartItem(2L, 7L, 4L, 1);
 
         when(cartItemRepository.findById(2L)).thenReturn(Optional.of(cartItem));
         when(validator.validate(cartItem).isEmpty()).thenReturn(false);
@@ -130,17 +234,98 @@ class CartItemServiceTest {
 
     @Test
     void canDelete(){
+        when(cartItemRepository.findById(1L)).thenReturn(Optional.of(cartItem(1L, 7L, 4L, 3)));
+
         underTest.deleteById(1L);
         verify(cartItemRepository).deleteById(1L);
+        verify(cartService).addToTotals(7L, 4L, -3);
+        verify(stockHolds).releaseAfterCommit(List.of(1L));
     }
 
     @Test
     void canNotDelete(){
-        doThrow(EmptyResultDataAccessException.class).when(cartItemRepository).deleteById(1L);
+        when(cartItemRepository.findById(1L)).thenReturn(Optional.empty());
         assertThatThrownBy(
                 ()-> underTest.deleteById(1L)
         ).isInstanceOf(NoSuchElementException.class)
                 .hasMessage("Cart item does not exist");
+        verify(cartItemRepository, never()).deleteById(1L);
+    }
+
+    @Test
+    void canApplyOperations(){
+        CartItem pens = cartItem(1L, 7L, 4L, 2);
+        pens.getProduct().setPrice(1.5);
+        CartItem books = cartItem(2L, 7L, 5L, 1);
+        books.getProduct().setPrice(10.0);
+        Product mug = new Product();
+        mug.setId(6L);
+        mug.setPrice(3.0);
+
+        when(cartService.retrieveByIdForUpdate(7L)).thenReturn(pens.getCart());
+        when(cartItemRepository.findAllByCartId(7L)).thenReturn(List.of(pens, books));
+        when(productService.retrieveAllById(Set.of(6L))).thenReturn(Map.of(6L, mug));
+        when(validator.validate(any(CartItem.class))).thenReturn(new HashSet<>());
+
+        underTest.applyOperations(7L, List.of(
+                operation(CartItemOperationDTO.Type.ADD, null, 6L, 3),
+                operation(CartItemOperationDTO.Type.UPDATE, 1L, null, 4),
+                operation(CartItemOperationDTO.Type.REMOVE, 2L, null, null)));
+
+        verify(cartItemRepository).saveAll(argThat((List<CartItem> saved) -> saved.size() == 1 && saved.get(0).getProduct() == mug));
+        verify(cartItemRepository).deleteAllInBatch(List.of(books));
+        verify(cartService).addAmountToTotals(7L, 9.0 + 3.0 - 10.0, 3 + 2 - 1);
+        verify(stockHolds).releaseAfterCommit(List.of(2L));
+        verify(stockHolds).holdAll(argThat(held -> held.size() == 2 && held.contains(pens)));
+        assertThat(pens.getQuantity()).isEqualTo(4);
+    }
+
+    @Test
+    void canNotApplyOperationsOnItemsOfAnotherCart(){
+        when(cartService.retrieveByIdForUpdate(7L)).thenReturn(new Cart());
+        when(cartItemRepository.findAllByCartId(7L)).thenReturn(List.of());
+
+        assertThatThrownBy(
+                ()-> underTest.applyOperations(7L, List.of(operation(CartItemOperationDTO.Type.REMOVE, 9L, null, null)))
+        ).isInstanceOf(NoSuchElementException.class)
+                .hasMessage("No such Cart item");
+        verify(cartItemRepository, never()).deleteAllInBatch(any());
+    }
+
+    @Test
+    void canNotApplyInvalidOperations(){
+        assertThatThrownBy(
+                ()-> underTest.applyOperations(7L, List.of(operation(CartItemOperationDTO.Type.ADD, null, null, 1)))
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("productId must not be blank");
+        assertThatThrownBy(
+                ()-> underTest.applyOperations(7L, List.of(operation(CartItemOperationDTO.Type.UPDATE, 1L, null, 0)))
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("quantity must be positive");
+        assertThatThrownBy(
+                ()-> underTest.applyOperations(7L, List.of())
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("operations must be between 1 and " + CartItemService.MAX_BATCH_OPERATIONS);
+        verifyNoInteractions(cartService);
+    }
+
+    private CartItemOperationDTO operation(CartItemOperationDTO.Type type, Long cartItemId, Long productId, Integer quantity){
+        CartItemOperationDTO operation = new CartItemOperationDTO();
+        operation.setType(type);
+        operation.setCartItemId(cartItemId);
+        operation.setProductId(productId);
+        operation.setQuantity(quantity);
+        return operation;
+    }
+
+    private CartItem cartItem(Long id, Long cartId, Long productId, int quantity){
+        Cart cart = new Cart();
+        cart.setId(cartId);
+        Product product = new Product();
+        product.setId(productId);
+        CartItem cartItem = new CartItem(cart, product, quantity);
+        cartItem.setId(id);
+        return cartItem;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.dto.CartViewDTO;
+import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.model.repository.*;
+import com.mythesis.eshop.support.SqlStatementCounter;
+import com.mythesis.eshop.util.CartMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class CartServiceQueryCountTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartMapper cartMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Test
+    void cartViewIsOneStatementWhateverTheCartSize(){
+        Long cartId = cartWithItems("view", 20);
+
+        SqlStatementCounter.reset();
+        CartViewDTO view = cartMapper.toCartViewDto(cartService.retrieveViewById(cartId));
+
+        assertThat(SqlStatementCounter.total()).isEqualTo(1);
+        assertThat(view.getId()).isEqualTo(cartId);
+        assertThat(view.getUserId()).isNotNull();
+        assertThat(view.getItems()).hasSize(20);
+        assertThat(view.getItems()).allSatisfy(item -> {
+            assertThat(item.getProductName()).startsWith("view");
+            assertThat(item.getPrice()).isEqualTo(10.0);
+            assertThat(item.getInStock()).isEqualTo(100);
+            assertThat(item.getQuantity()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void cartViewOfAnEmptyCartHasNoItems(){
+        Long cartId = cartWithItems("empty", 0);
+
+        CartViewDTO view = cartMapper.toCartViewDto(cartService.retrieveViewById(cartId));
+
+        assertThat(view.getItems()).isEmpty();
+    }
+
+    private Long cartWithItems(String name, int items){
+        Category category = categoryRepository.save(new Category("View"));
+        User user = new User(name + System.nanoTime(), "1234", name, name, "larisa",
+                String.valueOf(System.nanoTime()), 100.0);
+        user.setRole("ROLE_USER");
+        Cart cart = cartRepository.save(new Cart(userRepository.save(user), 0.0));
+
+        List<CartItem> cartItems = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            Product product = new Product(name + i, "description", name + i + "-" + System.nanoTime(), category, 10.0);
+            product.setInStock(100);
+            cartItems.add(new CartItem(cart, productRepository.save(product), 2));
+        }
+        cartItemRepository.saveAll(cartItems);
+
+        return cart.getId();
+    }
+}
@@ -70,6 +70,26 @@ class CartServiceTest {
                 .hasMessage("No such Cart");
     }
 
+    @Test
+    void canRetrieveViewById(){
+        Cart cart = new Cart();
+        cart.setId(3L);
+
+        when(cartRepository.findViewById(3L)).thenReturn(Optional.of(cart));
+
+        assertThat(underTest.retrieveViewById(3L).getId()).isEqualTo(3L);
+    }
+
+    @Test
+    void canNotRetrieveViewByNonExistingId(){
+        when(cartRepository.findViewById(55L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(
+                () -> underTest.retrieveViewById(55L)
+        ).isInstanceOf(NoSuchElementException.class)
+                .hasMessage("No such Cart");
+    }
+
     @Test
     void canCreate(){
 
@@ -86,6 +106,21 @@ class CartServiceTest {
     }
 
 
+    @Test
+    void canCreateWithEmptyTotals(){
+        Cart cart = new Cart();
+        cart.setTotal(22.0);
+        cart.setItemCount(3);
+
+        when(validator.validate(cart)).thenReturn(new HashSet<>());
+        when(cartRepository.save(cart)).thenReturn(cart);
+
+        Cart cart1 = underTest.add(cart);
+
+        assertThat(cart1.getTotal()).isEqualTo(0.0);
+        assertThat(cart1.getItemCount()).isEqualTo(0);
+    }
+
     @Test
     void canNotAddWithViolations(){
         Cart cart = new Cart();
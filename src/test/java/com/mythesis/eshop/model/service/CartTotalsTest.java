@@ -0,0 +1,126 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.model.repository.*;
+import com.mythesis.eshop.support.SqlStatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest
+class CartTotalsTest {
+
+    @SpyBean
+    private CartService cartService;
+
+    @Autowired
+    private CartItemService cartItemService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp(){
+        category = categoryRepository.save(new Category("Totals"));
+    }
+
+    @Test
+    void totalsFollowItemChanges(){
+        Cart cart = newCart("totals");
+        Product pen = newProduct("pen", 1.5);
+        Product book = newProduct("book", 12.25);
+
+        CartItem pens = cartItemService.add(new CartItem(cart, pen, 4));
+        CartItem books = cartItemService.add(new CartItem(cart, book, 1));
+        assertTotals(cart.getId(), 18.25, 5);
+
+        CartItem changes = new CartItem();
+        changes.setQuantity(2);
+        cartItemService.update(books.getId(), changes);
+        assertTotals(cart.getId(), 30.5, 6);
+
+        cartItemService.deleteById(pens.getId());
+        assertTotals(cart.getId(), 24.5, 2);
+    }
+
+    @Test
+    void totalsFollowPriceChanges(){
+        Cart cart = newCart("reprice");
+        Cart otherCart = newCart("reprice-other");
+        Product lamp = newProduct("lamp", 20.0);
+        cartItemService.add(new CartItem(cart, lamp, 2));
+        cartItemService.add(new CartItem(otherCart, lamp, 1));
+
+        Product changes = new Product();
+        changes.setPrice(17.99);
+        productService.update(lamp.getId(), changes);
+
+        assertTotals(cart.getId(), 35.98, 2);
+        assertTotals(otherCart.getId(), 17.99, 1);
+    }
+
+    @Test
+    void priceChangeRollsBackWhenRepricingFails(){
+        Cart cart = newCart("reprice-fails");
+        Product lamp = newProduct("lamp", 20.0);
+        cartItemService.add(new CartItem(cart, lamp, 2));
+        doThrow(new IllegalStateException("reprice failed")).when(cartService).repriceProduct(eq(lamp.getId()), anyDouble());
+
+        Product changes = new Product();
+        changes.setPrice(17.99);
+        assertThatThrownBy(() -> productService.update(lamp.getId(), changes))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(productRepository.findById(lamp.getId()).get().getPrice()).isEqualTo(20.0);
+        assertTotals(cart.getId(), 40.0, 2);
+    }
+
+    @Test
+    void readingACartIsOneStatement(){
+        Cart cart = newCart("read");
+        cartItemService.add(new CartItem(cart, newProduct("mug", 3.0), 1));
+
+        SqlStatementCounter.reset();
+        cartService.retrieveById(cart.getId());
+
+        assertThat(SqlStatementCounter.total()).isEqualTo(1);
+    }
+
+    private void assertTotals(Long cartId, double total, int itemCount){
+        Cart cart = cartService.retrieveById(cartId);
+        assertThat(cart.getTotal()).isEqualTo(total);
+        assertThat(cart.getItemCount()).isEqualTo(itemCount);
+    }
+
+    private Cart newCart(String name){
+        User user = new User(name + System.nanoTime(), "1234", name, name, "larisa",
+                String.valueOf(System.nanoTime()), 100.0);
+        user.setRole("ROLE_USER");
+        return cartService.add(new Cart(userRepository.save(user), 0.0));
+    }
+
+    private Product newProduct(String name, double price){
+        Product product = new Product(name, "description", name + "-" + System.nanoTime(), category, price);
+        product.setInStock(100);
+        return productRepository.save(product);
+    }
+}
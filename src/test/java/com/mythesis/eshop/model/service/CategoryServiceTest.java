@@ -1,6 +1,7 @@
 package com.mythesis.eshop.model.service;
 
 
+import com.mythesis.eshop.model.cache.ProductCatalogCache;
 import com.mythesis.eshop.model.entity.*;
 import com.mythesis.eshop.model.repository.CategoryRepository;
 import com.mythesis.eshop.model.repository.OrderItemRepository;
@@ -36,6 +37,9 @@ class CategoryServiceTest {
     @Mock
     private CategoryMapper categoryMapper;
 
+    @Mock
+    private ProductCatalogCache catalogCache;
+
     @InjectMocks
     private CategoryService underTest;
 
@@ -108,6 +112,7 @@ class CategoryServiceTest {
         Category cat1 = underTest.update(2L, cat);
 
         assertThat(cat1.getId()).isEqualTo(2L);
+        verify(catalogCache).invalidateAll();
 
     }
 
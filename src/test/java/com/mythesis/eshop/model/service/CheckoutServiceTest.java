@@ -0,0 +1,109 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.dto.OrderInfoDTO;
+import com.mythesis.eshop.model.entity.Order;
+import com.mythesis.eshop.util.OrderMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutServiceTest {
+
+    @Mock
+    private CartItemService cartItemService;
+    @Mock
+    private OrderMapper orderMapper;
+
+    private CheckoutService underTest;
+
+    @BeforeEach
+    void setUp(){
+        underTest = new CheckoutService(cartItemService, orderMapper, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void canReplayPurchaseWithSameKey(){
+        Order order = new Order();
+        OrderInfoDTO orderInfo = new OrderInfoDTO();
+        orderInfo.setId(7L);
+        when(cartItemService.purchase(1L)).thenReturn(order);
+        when(orderMapper.toOrderInfoDto(order)).thenReturn(orderInfo);
+
+        OrderInfoDTO first = underTest.purchase(1L, "key-1");
+        OrderInfoDTO replay = underTest.purchase(1L, "key-1");
+
+        assertThat(replay).isSameAs(first);
+        verify(cartItemService, times(1)).purchase(1L);
+        assertThat(underTest.replayCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void canPurchaseAgainWithNewKey(){
+        when(cartItemService.purchase(1L)).thenReturn(new Order());
+        when(orderMapper.toOrderInfoDto(any())).thenReturn(new OrderInfoDTO());
+
+        underTest.purchase(1L, "key-1");
+        underTest.purchase(1L, "key-2");
+
+        verify(cartItemService, times(2)).purchase(1L);
+    }
+
+    @Test
+    void canRetryFailedPurchaseWithSameKey(){
+        when(cartItemService.purchase(1L))
+                .thenThrow(new IllegalStateException("Not enough Balance"))
+                .thenReturn(new Order());
+        when(orderMapper.toOrderInfoDto(any())).thenReturn(new OrderInfoDTO());
+
+        assertThatThrownBy(() -> underTest.purchase(1L, "key-1"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Not enough Balance");
+        underTest.purchase(1L, "key-1");
+
+        verify(cartItemService, times(2)).purchase(1L);
+    }
+
+    @Test
+    void willThrowWhenKeyIsBlank(){
+        assertThatThrownBy(() -> underTest.purchase(1L, " "))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(cartItemService);
+    }
+
+    @Test
+    void concurrentRetriesRunPurchaseOnce() throws Exception {
+        CountDownLatch purchaseStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OrderInfoDTO orderInfo = new OrderInfoDTO();
+        when(cartItemService.purchase(1L)).thenAnswer(invocation -> {
+            purchaseStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new Order();
+        });
+        when(orderMapper.toOrderInfoDto(any())).thenReturn(orderInfo);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<OrderInfoDTO> first = executor.submit(() -> underTest.purchase(1L, "key-1"));
+        purchaseStarted.await(5, TimeUnit.SECONDS);
+        Future<OrderInfoDTO> second = executor.submit(() -> underTest.purchase(1L, "key-1"));
+        Future<OrderInfoDTO> third = executor.submit(() -> underTest.purchase(1L, "key-1"));
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(orderInfo);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(orderInfo);
+        assertThat(third.get(5, TimeUnit.SECONDS)).isSameAs(orderInfo);
+        verify(cartItemService, times(1)).purchase(1L);
+        executor.shutdown();
+    }
+}
@@ -6,6 +6,10 @@ import com.mythesis.eshop.model.repository.OrderItemRepository;
 import com.mythesis.eshop.model.repository.OrderRepository;
 import com.mythesis.eshop.util.OrderItemMapper;
 import com.mythesis.eshop.util.OrderMapper;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQL8Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Answers;
@@ -14,6 +18,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.EmptyResultDataAccessException;
 
+import javax.persistence.EntityManager;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
 import java.util.HashSet;
@@ -36,10 +41,35 @@ class OrderItemServiceTest {
     @Mock
     private OrderItemMapper orderItemMapper;
 
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private EntityManager entityManager;
+
     @InjectMocks
     private OrderItemService underTest;
 
 
+    @Test
+    void canSeedIdSequenceTable(){
+        useDialect(new MySQL8Dialect());
+
+        underTest.seedIdSequence();
+        verify(orderItemRepository).seedIdSequence();
+    }
+
+    @Test
+    void willNotSeedNativeIdSequence(){
+        useDialect(new H2Dialect());
+
+        underTest.seedIdSequence();
+        verify(orderItemRepository, never()).seedIdSequence();
+    }
+
+    private void useDialect(Dialect dialect){
+        SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class, Answers.RETURNS_DEEP_STUBS);
+        when(entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getJdbcServices().getDialect()).thenReturn(dialect);
+    }
+
     @Test
     void canRetrieveAll(){
         underTest.retrieveAll();
@@ -0,0 +1,59 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.model.repository.*;
+import com.mythesis.eshop.support.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class OrderServiceQueryCountTest {
+
+    private static final int LINES = 50;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void orderItemsAreInsertedInOneBatch(){
+        User user = new User("orderer" + System.nanoTime(), "1234", "orderer", "orderer", "larisa",
+                String.valueOf(System.nanoTime()), 100.0);
+        user.setRole("ROLE_USER");
+        user = userRepository.save(user);
+        Category category = categoryRepository.save(new Category("Orders"));
+
+        Order order = new Order(user, (double) LINES);
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            Product product = new Product("line" + i, "description", "line" + i + "-" + System.nanoTime(), category, 1.0);
+            orderItems.add(new OrderItem(order, productRepository.save(product)));
+        }
+        order.setOrderItems(orderItems);
+
+        SqlStatementCounter.reset();
+        Order created = orderService.createOrder(order);
+
+        assertThat(SqlStatementCounter.count("insert")).isEqualTo(2);
+        assertThat(SqlStatementCounter.total()).isLessThanOrEqualTo(6);
+        assertThat(orderItemRepository.count()).isGreaterThanOrEqualTo(LINES);
+        assertThat(created.getOrderItems()).allSatisfy(item -> assertThat(item.getId()).isNotNull());
+    }
+}
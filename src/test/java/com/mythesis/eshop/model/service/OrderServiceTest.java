@@ -5,6 +5,8 @@ import com.mythesis.eshop.model.entity.Category;
 import com.mythesis.eshop.model.entity.Order;
 import com.mythesis.eshop.model.entity.Product;
 import com.mythesis.eshop.model.entity.User;
+import com.mythesis.eshop.dto.OrderStatsDTO;
+import com.mythesis.eshop.model.repository.OrderItemRepository;
 import com.mythesis.eshop.model.repository.OrderRepository;
 import com.mythesis.eshop.model.repository.ProductRepository;
 import com.mythesis.eshop.util.OrderMapper;
@@ -19,6 +21,8 @@ import org.springframework.dao.EmptyResultDataAccessException;
 
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
+import java.time.LocalDate;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -33,6 +37,9 @@ class OrderServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private Validator validator;
 
@@ -152,4 +159,39 @@ class OrderServiceTest {
                 .hasMessage("Order does not exist");
     }
 
-}
\ No newline at end of file
+    @Test
+    void canComputeStats(){
+        LocalDate today = LocalDate.now();
+        when(orderRepository.count()).thenReturn(4L);
+        when(orderItemRepository.count()).thenReturn(10L);
+        when(orderRepository.sumTotal()).thenReturn(120.0);
+        when(orderRepository.countPerDaySince(today.minusDays(6)))
+                .thenReturn(Collections.singletonList(new Object[]{ today, 4L }));
+
+        OrderStatsDTO stats = underTest.stats(7);
+
+        assertThat(stats.getOrderCount()).isEqualTo(4L);
+        assertThat(stats.getRevenue()).isEqualTo(120.0);
+        assertThat(stats.getAverageBasketSize()).isEqualTo(2.5);
+        assertThat(stats.getOrdersPerDay().get(today)).isEqualTo(4L);
+    }
+
+    @Test
+    void canComputeStatsWithoutOrders(){
+        when(orderRepository.count()).thenReturn(0L);
+        when(orderRepository.sumTotal()).thenReturn(0.0);
+
+        OrderStatsDTO stats = underTest.stats(1);
+
+        assertThat(stats.getAverageBasketSize()).isEqualTo(0.0);
+    }
+
+    @Test
+    void canNotComputeStatsForIllegalDays(){
+        assertThatThrownBy(
+                ()-> underTest.stats(0)
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("days must be between 1 and " + OrderService.MAX_STATS_DAYS);
+    }
+
+}
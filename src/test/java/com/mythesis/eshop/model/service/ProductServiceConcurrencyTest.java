@@ -0,0 +1,147 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.model.entity.*;
+import com.mythesis.eshop.model.repository.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductServiceConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int CHECKOUTS_PER_THREAD = 4;
+    private static final int INITIAL_STOCK = 100;
+
+    @Autowired
+    private CartItemService cartItemService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentCheckoutsOfOneSkuNeverOversell() throws Exception {
+        Category category = categoryRepository.save(new Category("Flash sale"));
+        Product product = new Product("hot", "hot item", "hot-" + System.nanoTime(), category, 1.0);
+        product.setInStock(INITIAL_STOCK);
+        Product hotProduct = productRepository.save(product);
+
+        List<Long> cartIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            User user = new User("buyer" + i + "-" + System.nanoTime(), "1234", "buyer", "buyer", "larisa",
+                    String.valueOf(System.nanoTime()), 1_000_000.0);
+            user.setRole("ROLE_USER");
+            Cart cart = cartRepository.save(new Cart(userRepository.save(user), 0.0));
+            cartItemRepository.save(new CartItem(cart, hotProduct, 1));
+            cartIds.add(cart.getId());
+        }
+        long ordersBefore = orderRepository.count();
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (Long cartId : cartIds) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < CHECKOUTS_PER_THREAD; i++) {
+                    try {
+                        cartItemService.purchaseAllInCartItems(cartId);
+                        succeeded.incrementAndGet();
+                    } catch (IllegalStateException ex) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        executor.shutdown();
+
+        System.out.printf("%d checkouts on one SKU from %d threads: %d succeeded, %d rejected, %.0f checkouts/s%n",
+                THREADS * CHECKOUTS_PER_THREAD, THREADS, succeeded.get(), rejected.get(),
+                THREADS * CHECKOUTS_PER_THREAD / seconds);
+
+        assertThat(succeeded.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(rejected.get()).isEqualTo(THREADS * CHECKOUTS_PER_THREAD - INITIAL_STOCK);
+        assertThat(productRepository.findById(hotProduct.getId()).get().getInStock()).isZero();
+        assertThat(orderRepository.count() - ordersBefore).isEqualTo(INITIAL_STOCK);
+    }
+
+    @Test
+    void productUpdateDoesNotUndoConcurrentReservation() throws Exception {
+        Category category = categoryRepository.save(new Category("Restock"));
+        Product product = new Product("lamp", "desk lamp", "lamp-" + System.nanoTime(), category, 20.0);
+        product.setInStock(INITIAL_STOCK);
+        Long productId = productRepository.save(product).getId();
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch updated = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<?> update = executor.submit(() -> transaction.executeWithoutResult(status -> {
+            Product changes = new Product();
+            changes.setName("reading lamp");
+            productService.update(productId, changes);
+            updated.countDown();
+            try {
+                commit.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(updated.await(10, TimeUnit.SECONDS)).isTrue();
+        Future<List<Long>> reservation = executor.submit(
+                () -> transaction.execute(status -> productRepository.decrementStock(Map.of(productId, 5))));
+
+        Thread.sleep(200);
+        commit.countDown();
+        update.get(30, TimeUnit.SECONDS);
+        assertThat(reservation.get(30, TimeUnit.SECONDS)).isEmpty();
+        executor.shutdown();
+
+        Product stored = productRepository.findById(productId).get();
+        assertThat(stored.getName()).isEqualTo("reading lamp");
+        assertThat(stored.getInStock()).isEqualTo(INITIAL_STOCK - 5);
+    }
+}
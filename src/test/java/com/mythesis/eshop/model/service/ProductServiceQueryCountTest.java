@@ -0,0 +1,132 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.dto.ProductEntryDTO;
+import com.mythesis.eshop.dto.ProductFacetsDTO;
+import com.mythesis.eshop.dto.ProductImportResultDTO;
+import com.mythesis.eshop.dto.ProductInfoDTO;
+import com.mythesis.eshop.model.entity.Category;
+import com.mythesis.eshop.model.entity.Product;
+import com.mythesis.eshop.model.importer.ProductImportRow;
+import com.mythesis.eshop.model.repository.CategoryRepository;
+import com.mythesis.eshop.model.repository.ProductRepository;
+import com.mythesis.eshop.support.SqlStatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductServiceQueryCountTest {
+
+    private static final int PRODUCTS = 30;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp(){
+        for (int c = 0; c < 3; c++) {
+            Category category = categoryRepository.save(new Category("category" + c));
+            for (int i = 0; i < PRODUCTS / 3; i++) {
+                productRepository.save(new Product("p" + i, "description", "listing-" + System.nanoTime(), category, 1.0 + i));
+            }
+        }
+    }
+
+    @Test
+    void importIssuesStatementsPerChunkNotPerRow(){
+        int rows = ProductService.IMPORT_CHUNK_SIZE * 2 + 100;
+        Long categoryId = categoryRepository.save(new Category("imported")).getId();
+        String prefix = "import-" + System.nanoTime() + "-";
+
+        List<ProductImportRow> importRows = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            ProductEntryDTO entry = new ProductEntryDTO();
+            entry.setName("imported " + i);
+            entry.setDescription("description");
+            entry.setSku(prefix + i);
+            entry.setCategoryId(categoryId);
+            entry.setPrice(1.0);
+            importRows.add(ProductImportRow.parsed(i + 2, entry));
+        }
+
+        SqlStatementCounter.reset();
+        ProductImportResultDTO result = productService.importProducts(importRows.iterator());
+
+        int chunks = 3;
+        assertThat(result.getImported()).isEqualTo(rows);
+        assertThat(SqlStatementCounter.count("select")).isEqualTo(2L * chunks);
+        assertThat(SqlStatementCounter.count("insert")).isLessThanOrEqualTo((long) rows / 50 + chunks);
+    }
+
+    @Test
+    void listingIssuesExactlyOneStatement(){
+        SqlStatementCounter.reset();
+
+        List<ProductInfoDTO> products = productService.retrieveAllInfo();
+
+        assertThat(products.size()).isGreaterThanOrEqualTo(PRODUCTS);
+        assertThat(products.get(0).getCategoryName()).isNotNull();
+        assertThat(SqlStatementCounter.total()).isEqualTo(1L);
+    }
+
+    @Test
+    void keysetPageIssuesExactlyOneStatement(){
+        SqlStatementCounter.reset();
+
+        List<ProductInfoDTO> products = productService.retrieveInfoAfter(0L, 10);
+
+        assertThat(products).hasSize(10);
+        assertThat(SqlStatementCounter.total()).isEqualTo(1L);
+    }
+
+    @Test
+    void filteredPageIssuesExactlyOneStatement(){
+        Category category = categoryRepository.save(new Category("filtered"));
+        for (int i = 0; i < 5; i++) {
+            productRepository.save(new Product("f" + i, "description", "filtered-" + System.nanoTime(), category, 10.0 * i));
+        }
+        SqlStatementCounter.reset();
+
+        List<ProductInfoDTO> products = productService.retrieveInfoMatching(category.getId(), 10.0, 30.0, 0L, 10);
+
+        assertThat(products).extracting(ProductInfoDTO::getPrice).containsExactly(10.0, 20.0, 30.0);
+        assertThat(SqlStatementCounter.total()).isEqualTo(1L);
+    }
+
+    @Test
+    void facetsIssueNoStatements(){
+        Category category = categoryRepository.save(new Category("faceted"));
+        Product product = new Product("faceted", "description", "faceted-" + System.nanoTime(), category, 42.0);
+        productService.add(product);
+        SqlStatementCounter.reset();
+
+        ProductFacetsDTO facets = productService.retrieveFacets(category.getId(), null, null);
+
+        assertThat(facets.getTotal()).isEqualTo(1L);
+        assertThat(facets.getCategories()).containsEntry(category.getId(), 1L);
+        assertThat(SqlStatementCounter.total()).isZero();
+    }
+
+    @Test
+    void streamIssuesExactlyOneStatement(){
+        List<ProductInfoDTO> products = new ArrayList<>();
+        SqlStatementCounter.reset();
+
+        productService.streamAllInfo(products::add);
+
+        assertThat(products.size()).isGreaterThanOrEqualTo(PRODUCTS);
+        assertThat(SqlStatementCounter.total()).isEqualTo(1L);
+    }
+}
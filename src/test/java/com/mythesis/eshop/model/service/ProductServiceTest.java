@@ -1,11 +1,21 @@
 package com.mythesis.eshop.model.service;
 
 
+import com.mythesis.eshop.dto.ProductEntryDTO;
+import com.mythesis.eshop.dto.ProductFacetsDTO;
+import com.mythesis.eshop.dto.ProductImportResultDTO;
+import com.mythesis.eshop.dto.ProductInfoDTO;
+import com.mythesis.eshop.model.cache.ProductCatalogCache;
+import com.mythesis.eshop.model.cache.ProductView;
 import com.mythesis.eshop.model.entity.Category;
 import com.mythesis.eshop.model.entity.Product;
 import com.mythesis.eshop.model.entity.User;
+import com.mythesis.eshop.model.importer.ProductImportRow;
 import com.mythesis.eshop.model.repository.ProductRepository;
 import com.mythesis.eshop.model.repository.UserRepository;
+import com.mythesis.eshop.model.inventory.InventoryLedger;
+import com.mythesis.eshop.model.search.ProductFacetIndex;
+import com.mythesis.eshop.model.search.ProductSearchIndex;
 import com.mythesis.eshop.util.ProductMapper;
 import com.mythesis.eshop.util.UserMapper;
 import org.junit.jupiter.api.Test;
@@ -14,7 +24,9 @@ import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -23,9 +35,12 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +55,23 @@ class ProductServiceTest {
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private ProductCatalogCache catalogCache;
+
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    @Mock
+    private ProductFacetIndex facetIndex;
+
+    @Mock
+    private CategoryService categoryService;
+    @Mock
+    private InventoryLedger inventoryLedger;
+
+    @Mock
+    private CartService cartService;
+
     @InjectMocks
     private ProductService underTest;
 
@@ -52,6 +84,115 @@ class ProductServiceTest {
         verify(productRepository).findAll();
     }
 
+    @Test
+    void canRetrieveAllInfo(){
+        underTest.retrieveAllInfo();
+        verify(productRepository).findAllInfo();
+    }
+
+    @Test
+    void canRetrieveInfoAfter(){
+        underTest.retrieveInfoAfter(10L, 20);
+        verify(productRepository).findAllInfoAfterId(10L, PageRequest.of(0, 20));
+    }
+
+    @Test
+    void canNotRetrieveInfoAfterWithIllegalLimit(){
+        assertThatThrownBy(
+                () -> underTest.retrieveInfoAfter(0L, ProductService.MAX_PAGE_SIZE + 1)
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("limit must be between 1 and " + ProductService.MAX_PAGE_SIZE);
+    }
+
+    @Test
+    void canRetrieveInfoMatching(){
+        underTest.retrieveInfoMatching(3L, 10.0, 20.0, 5L, 20);
+        verify(productRepository).findAllInfoMatching(3L, 10.0, 20.0, 5L, PageRequest.of(0, 20));
+    }
+
+    @Test
+    void canStreamAllInfoAndCloseStream(){
+        List<ProductInfoDTO> products = List.of(
+                new ProductInfoDTO(1L, "p1", "d1", "s1", "c1", 1.0),
+                new ProductInfoDTO(2L, "p2", "d2", "s2", "c1", 2.0));
+        boolean[] closed = {false};
+        when(productRepository.streamAllInfo()).thenReturn(products.stream().onClose(() -> closed[0] = true));
+        List<ProductInfoDTO> streamed = new ArrayList<>();
+
+        underTest.streamAllInfo(streamed::add);
+
+        assertThat(streamed).isEqualTo(products);
+        assertThat(closed[0]).isTrue();
+    }
+
+    @Test
+    void canCloseStreamWhenConsumerFails(){
+        boolean[] closed = {false};
+        when(productRepository.streamAllInfo()).thenReturn(
+                Stream.of(new ProductInfoDTO(1L, "p1", "d1", "s1", "c1", 1.0))
+                        .onClose(() -> closed[0] = true));
+
+        assertThatThrownBy(() -> underTest.streamAllInfo(product -> {
+            throw new IllegalStateException("client went away");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(closed[0]).isTrue();
+    }
+
+    @Test
+    void canNotRetrieveInfoMatchingInvertedPriceRange(){
+        assertThatThrownBy(
+                () -> underTest.retrieveInfoMatching(null, 20.0, 10.0, 0L, 20)
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("minPrice must not be greater than maxPrice");
+    }
+
+    @Test
+    void canRetrieveFacets(){
+        when(facetIndex.countByPriceBucket(3L)).thenReturn(new long[] { 1, 0, 0, 0, 0, 0, 0, 2 });
+        when(facetIndex.count(3L, 5.0, null)).thenReturn(3L);
+        when(facetIndex.countByCategory(5.0, null)).thenReturn(Map.of(3L, 3L, 4L, 1L));
+
+        ProductFacetsDTO facets = underTest.retrieveFacets(3L, 5.0, null);
+
+        assertThat(facets.getTotal()).isEqualTo(3L);
+        assertThat(facets.getCategories()).isEqualTo(Map.of(3L, 3L, 4L, 1L));
+        assertThat(facets.getPriceBuckets().get(0).getFrom()).isEqualTo(0.0);
+        assertThat(facets.getPriceBuckets().get(0).getTo()).isEqualTo(10.0);
+        assertThat(facets.getPriceBuckets().get(7).getFrom()).isEqualTo(1000.0);
+        assertThat(facets.getPriceBuckets().get(7).getTo()).isNull();
+        assertThat(facets.getPriceBuckets().get(7).getCount()).isEqualTo(2L);
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void canSearchInRankOrder(){
+        ProductInfoDTO first = new ProductInfoDTO(2L, "p2", "d2", "s2", "c", 2.0);
+        ProductInfoDTO second = new ProductInfoDTO(1L, "p1", "d1", "s1", "c", 1.0);
+
+        when(searchIndex.search("phone", 10)).thenReturn(List.of(2L, 1L));
+        when(productRepository.findAllInfoByIdIn(List.of(2L, 1L))).thenReturn(List.of(second, first));
+
+        List<ProductInfoDTO> found = underTest.search("phone", 10);
+
+        assertThat(found).isEqualTo(List.of(first, second));
+    }
+
+    @Test
+    void canSearchWithoutHitsWithoutQuerying(){
+        when(searchIndex.search("nothing", 10)).thenReturn(List.of());
+
+        assertThat(underTest.search("nothing", 10)).isEqualTo(List.of());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void canNotSearchWithIllegalLimit(){
+        assertThatThrownBy(
+                () -> underTest.search("phone", ProductService.MAX_SEARCH_RESULTS + 1)
+        ).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("limit must be between 1 and " + ProductService.MAX_SEARCH_RESULTS);
+    }
+
     @Test
     void canRetrieveById(){
         Category cat = new Category("Electronics");
@@ -69,6 +210,14 @@ class ProductServiceTest {
 
     }
 
+    @Test
+    void canRetrieveViewById(){
+        ProductView view = new ProductView(1L, "p1", "d1", "s1", "c1", 1.0);
+        when(catalogCache.get(eq(1L), any())).thenReturn(view);
+
+        assertThat(underTest.retrieveViewById(1L)).isSameAs(view);
+    }
+
     @Test
     void canRetrieveAllOrderedByUser(){
         underTest.retrieveAllOrderedByUser(3L);
@@ -109,6 +258,7 @@ class ProductServiceTest {
         Product product1 = underTest.add(product);
 
         assertThat(product1.getSku()).isEqualTo(product.getSku());
+        verify(searchIndex).index(product.getId(), "test prod", "test test", "311234");
 
     }
 
@@ -157,14 +307,38 @@ class ProductServiceTest {
         product.setId(1L);
 
         when(validator.validate(product).isEmpty()).thenReturn(true);
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(product));
         doNothing().when(productMapper).copyProperties(product, product);
         when(productRepository.save(product)).thenReturn(product);
 
         Product product1 = underTest.update(1L, product);
 
         assertThat(product1.getId()).isEqualTo(product.getId());
+        verify(catalogCache).invalidate(1L);
+        verify(searchIndex).index(1L, "test prod", "test test", "311234");
+        verify(facetIndex).index(1L, null, 10.2);
+        verify(cartService, never()).repriceProduct(anyLong(), anyDouble());
+
+    }
+
+    @Test
+    void canRepriceCartsWhenPriceChanges(){
+        Product product = new Product("test prod", "test test", "311234", new Category("Electronics"), 10.0);
+        product.setId(1L);
+        Product changes = new Product();
+        changes.setPrice(12.5);
+
+        when(validator.validate(product).isEmpty()).thenReturn(true);
+        when(productRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(product));
+        doAnswer(invocation -> {
+            product.setPrice(12.5);
+            return null;
+        }).when(productMapper).copyProperties(changes, product);
+        when(productRepository.save(product)).thenReturn(product);
+
+        underTest.update(1L, changes);
 
+        verify(cartService).repriceProduct(1L, 2.5);
     }
 
 
@@ -187,7 +361,7 @@ class ProductServiceTest {
     void canNotUpdateWithViolations(){
         Product product = new Product();
 
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(product));
         when(validator.validate(product).isEmpty()).thenReturn(false);
 
         assertThatThrownBy(
@@ -200,6 +374,9 @@ class ProductServiceTest {
     void canDelete(){
         underTest.delete(1L);
         verify(productRepository).deleteById(1L);
+        verify(catalogCache).invalidate(1L);
+        verify(searchIndex).remove(1L);
+        verify(facetIndex).remove(1L);
     }
 
     @Test
@@ -211,6 +388,90 @@ class ProductServiceTest {
                 .hasMessage("Product does not exist");
     }
 
+    @Test
+    void canImportProductsReportingRejectedRows(){
+        Category category = new Category("Electronics");
+        category.setId(3L);
+
+        List<ProductImportRow> rows = List.of(
+                ProductImportRow.parsed(2, entry("new", 3L)),
+                ProductImportRow.parsed(3, entry("taken", 3L)),
+                ProductImportRow.parsed(4, entry("new", 3L)),
+                ProductImportRow.parsed(5, entry("orphan", 9L)),
+                ProductImportRow.malformed(6, "price must be a number"));
+
+        when(validator.validate(any())).thenReturn(new HashSet<>());
+        when(categoryService.retrieveAllById(Set.of(3L, 9L))).thenReturn(Map.of(3L, category));
+        when(productRepository.findExistingSkus(Set.of("new", "taken", "orphan"))).thenReturn(Set.of("taken"));
+
+        ProductImportResultDTO result = underTest.importProducts(rows.iterator());
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(4);
+        assertThat(result.getErrors().get(0).getLine()).isEqualTo(3L);
+        assertThat(result.getErrors().get(0).getMessages()).isEqualTo(List.of("SKU already exists"));
+        assertThat(result.getErrors().get(1).getLine()).isEqualTo(4L);
+        assertThat(result.getErrors().get(2).getMessages()).isEqualTo(List.of("No such Category"));
+        assertThat(result.getErrors().get(3).getMessages()).isEqualTo(List.of("price must be a number"));
+        verify(productRepository).saveAll(argThat(products -> ((List<Product>) products).size() == 1));
+        verify(searchIndex).index(null, "name new", "description", "new");
+    }
+
+    @Test
+    void canImportRowByRowWhenSkuIsTakenConcurrently(){
+        Category category = new Category("Electronics");
+        category.setId(3L);
+
+        when(validator.validate(any())).thenReturn(new HashSet<>());
+        when(categoryService.retrieveAllById(Set.of(3L))).thenReturn(Map.of(3L, category));
+        when(productRepository.findExistingSkus(Set.of("a", "b"))).thenReturn(Set.of());
+        when(productRepository.findExistingSkus(Set.of("b"))).thenReturn(Set.of("b"));
+        when(productRepository.saveAll(any())).thenThrow(DataIntegrityViolationException.class);
+        when(productRepository.save(any())).thenAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            if (product.getSku().equals("b"))
+                throw new DataIntegrityViolationException("duplicate");
+            return product;
+        });
+
+        ProductImportResultDTO result = underTest.importProducts(List.of(
+                ProductImportRow.parsed(2, entry("a", 3L)),
+                ProductImportRow.parsed(3, entry("b", 3L))).iterator());
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getErrors().get(0).getSku()).isEqualTo("b");
+        assertThat(result.getErrors().get(0).getMessages()).isEqualTo(List.of("SKU already exists"));
+    }
+
+    @Test
+    void willNotReportOtherConstraintViolationsAsTakenSku(){
+        Category category = new Category("Electronics");
+        category.setId(3L);
+
+        when(validator.validate(any())).thenReturn(new HashSet<>());
+        when(categoryService.retrieveAllById(Set.of(3L))).thenReturn(Map.of(3L, category));
+        when(productRepository.findExistingSkus(Set.of("a"))).thenReturn(Set.of());
+        when(productRepository.saveAll(any())).thenThrow(DataIntegrityViolationException.class);
+        when(productRepository.save(any())).thenThrow(new DataIntegrityViolationException("value too long"));
+
+        ProductImportResultDTO result = underTest.importProducts(List.of(
+                ProductImportRow.parsed(2, entry("a", 3L))).iterator());
+
+        assertThat(result.getImported()).isEqualTo(0);
+        assertThat(result.getErrors().get(0).getSku()).isEqualTo("a");
+        assertThat(result.getErrors().get(0).getMessages()).isEqualTo(List.of("Product could not be saved"));
+    }
+
+    private ProductEntryDTO entry(String sku, Long categoryId){
+        ProductEntryDTO entry = new ProductEntryDTO();
+        entry.setName("name " + sku);
+        entry.setDescription("description");
+        entry.setSku(sku);
+        entry.setCategoryId(categoryId);
+        entry.setPrice(1.0);
+        return entry;
+    }
+
     @Test
     void canCheckSku(){
         underTest.skuExists("1234");
@@ -0,0 +1,72 @@
+package com.mythesis.eshop.model.service;
+
+import com.mythesis.eshop.model.entity.User;
+import com.mythesis.eshop.model.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class UserServiceConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int PURCHASES_PER_THREAD = 8;
+    private static final double INITIAL_BALANCE = 100.0;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void parallelPurchasesByOneUserNeverOverdraw() throws Exception {
+        User user = new User("spender" + System.nanoTime(), "1234", "spender", "spender", "larisa",
+                String.valueOf(System.nanoTime()), INITIAL_BALANCE);
+        user.setRole("ROLE_USER");
+        Long userId = userRepository.save(user).getId();
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < PURCHASES_PER_THREAD; i++) {
+                    try {
+                        userService.deductAmount(userId, 1.0);
+                        succeeded.incrementAndGet();
+                    } catch (IllegalStateException ex) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        executor.shutdown();
+
+        System.out.printf("%d deductions for one user from %d threads: %d succeeded, %d rejected, %.0f deductions/s%n",
+                THREADS * PURCHASES_PER_THREAD, THREADS, succeeded.get(), rejected.get(),
+                THREADS * PURCHASES_PER_THREAD / seconds);
+
+        assertThat(succeeded.get()).isEqualTo((int) INITIAL_BALANCE);
+        assertThat(userRepository.findById(userId).get().getBalance()).isZero();
+    }
+}
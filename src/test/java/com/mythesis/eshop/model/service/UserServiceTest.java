@@ -1,6 +1,7 @@
 package com.mythesis.eshop.model.service;
 
 
+import com.mythesis.eshop.model.cache.UserDetailsCache;
 import com.mythesis.eshop.model.entity.User;
 import com.mythesis.eshop.model.repository.UserRepository;
 import com.mythesis.eshop.util.UserMapper;
@@ -10,6 +11,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -22,6 +24,7 @@ import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
 
+import java.time.Duration;
 import java.util.*;
 
 import static org.assertj.core.api.AssertionsForClassTypes.*;
@@ -39,6 +42,8 @@ class UserServiceTest {
     private UserMapper userMapper;
     @Mock
     private PasswordEncoder passwordEncoder;
+    @Spy
+    private UserDetailsCache userDetailsCache = new UserDetailsCache(100, Duration.ofMinutes(1));
 
     @InjectMocks
     private UserService underTest;
@@ -67,6 +72,23 @@ class UserServiceTest {
                 .isEqualTo(authorities.toArray());
     }
 
+    @Test
+    void canLoadUserByUsernameFromCache(){
+        User user = new User();
+        user.setUsername("test");
+        user.setPassword("1234");
+        user.setRole("ROLE_USER");
+
+        when(userRepository.findByUsername(user.getUsername())).thenReturn(Optional.of(user));
+
+        UserDetails first = underTest.loadUserByUsername(user.getUsername());
+        UserDetails second = underTest.loadUserByUsername(user.getUsername());
+
+        verify(userRepository, times(1)).findByUsername(user.getUsername());
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getPassword()).isEqualTo(user.getPassword());
+    }
+
     @Test
     void canNotLoadUserByNonExistingUsername(){
         when(userRepository.findByUsername("doesNotExist")).thenThrow(NoSuchElementException.class);
@@ -197,6 +219,7 @@ class UserServiceTest {
         User user1 = underTest.update(1L, user);
 
         assertThat(user1.getId()).isEqualTo(user.getId());
+        verify(userDetailsCache, times(2)).invalidate("test");
 
     }
 
@@ -248,6 +271,7 @@ class UserServiceTest {
     void canDelete(){
         underTest.delete(1L);
         verify(userRepository).deleteById(1L);
+        verify(userDetailsCache).invalidateAll();
     }
 
     @Test
@@ -271,5 +295,36 @@ class UserServiceTest {
         verify(userRepository).findByPhone("6999999999");
     }
 
+    @Test
+    void canDeductAmount(){
+        when(userRepository.deductBalance(1L, 10.0)).thenReturn(1);
+
+        underTest.deductAmount(1L, 10.0);
+
+        verify(userRepository).deductBalance(1L, 10.0);
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void canNotDeductMoreThanBalance(){
+        when(userRepository.deductBalance(1L, 10.0)).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThatThrownBy(
+                ()-> underTest.deductAmount(1L, 10.0)
+        ).isInstanceOf(IllegalStateException.class)
+                .hasMessage("Not enough Balance");
+    }
+
+    @Test
+    void canNotDeductFromNonExistingUser(){
+        when(userRepository.deductBalance(1L, 10.0)).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        assertThatThrownBy(
+                ()-> underTest.deductAmount(1L, 10.0)
+        ).isInstanceOf(NoSuchElementException.class)
+                .hasMessage("No such User");
+    }
 
-}
\ No newline at end of file
+}
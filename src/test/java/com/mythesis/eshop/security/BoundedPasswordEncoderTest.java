@@ -0,0 +1,97 @@
+package com.mythesis.eshop.security;
+
+import com.mythesis.eshop.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed-" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void canEncodeAndMatchOnPool() {
+        release.countDown();
+        BoundedPasswordEncoder underTest = new BoundedPasswordEncoder(blockingEncoder, 1, 1, Duration.ofSeconds(5), registry);
+
+        assertThat(underTest.encode("1234")).isEqualTo("hashed-1234");
+        assertThat(underTest.matches("1234", "hashed-1234")).isTrue();
+        assertThat(registry.get("password.hash").tag("operation", "encode").timer().count()).isEqualTo(1L);
+        assertThat(registry.get("password.hash.queue.wait").timer().count()).isEqualTo(2L);
+        underTest.shutdown();
+    }
+
+    @Test
+    void willRejectWhenQueueIsFull() throws Exception {
+        BoundedPasswordEncoder underTest = new BoundedPasswordEncoder(blockingEncoder, 1, 1, Duration.ofSeconds(5), registry);
+
+        Future<String> running = callers.submit(() -> underTest.encode("running"));
+        started.await(5, TimeUnit.SECONDS);
+        Future<String> queued = callers.submit(() -> underTest.encode("queued"));
+        awaitQueueSize(underTest, 1);
+
+        assertThatThrownBy(() -> underTest.encode("rejected"))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThat(registry.get("password.hash.rejected").tag("reason", "queue_full").counter().count()).isEqualTo(1.0);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hashed-running");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hashed-queued");
+        underTest.shutdown();
+    }
+
+    @Test
+    void willGiveUpAndDequeueAfterMaxWait() throws Exception {
+        BoundedPasswordEncoder underTest = new BoundedPasswordEncoder(blockingEncoder, 1, 1, Duration.ofMillis(50), registry);
+
+        callers.submit(() -> underTest.encode("running"));
+        started.await(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> underTest.encode("waiting"))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThat(underTest.queueSize()).isZero();
+        assertThat(registry.get("password.hash.rejected").tag("reason", "timeout").counter().count()).isEqualTo(1.0);
+        underTest.shutdown();
+    }
+
+    private static void awaitQueueSize(BoundedPasswordEncoder encoder, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (encoder.queueSize() < size && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.mythesis.eshop.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+
+class JwtTokenVerifierTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final JwtTokenVerifier underTest = new JwtTokenVerifier(registry);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void canAuthenticateValidToken() throws Exception {
+        Authentication authentication = filter(token(Algorithm.HMAC256("mysecret".getBytes()), TimeUnit.DAYS.toMillis(1)));
+
+        assertThat(authentication.getName()).isEqualTo("chris");
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void repeatedTokenIsServedFromCache() throws Exception {
+        String token = token(Algorithm.HMAC256("mysecret".getBytes()), TimeUnit.DAYS.toMillis(1));
+
+        Authentication first = filter(token);
+        SecurityContextHolder.clearContext();
+        Authentication second = filter(token);
+
+        assertThat(second.getName()).isEqualTo(first.getName());
+        assertThat(second).isNotSameAs(first);
+        assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("jwt.filter").tag("token", "verified").timer().count()).isEqualTo(1L);
+        assertThat(registry.get("jwt.filter").tag("token", "cached").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    void willThrowWhenTokenSignatureIsWrong() {
+        String token = token(Algorithm.HMAC256("othersecret".getBytes()), TimeUnit.DAYS.toMillis(1));
+
+        assertThatThrownBy(() -> filter(token))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Bad access token");
+    }
+
+    @Test
+    void willThrowWhenTokenHasExpired() {
+        String token = token(Algorithm.HMAC256("mysecret".getBytes()), -TimeUnit.MINUTES.toMillis(1));
+
+        assertThatThrownBy(() -> filter(token))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Bad access token");
+    }
+
+    @Test
+    void requestWithoutBearerTokenIsLeftUnauthenticated() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products");
+
+        underTest.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    private Authentication filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products");
+        request.addHeader(AUTHORIZATION, "Bearer " + token);
+        underTest.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static String token(Algorithm algorithm, long validForMillis) {
+        return JWT.create()
+                .withSubject("chris")
+                .withArrayClaim("roles", new String[] { "ROLE_USER" })
+                .withExpiresAt(new Date(System.currentTimeMillis() + validForMillis))
+                .sign(algorithm);
+    }
+}
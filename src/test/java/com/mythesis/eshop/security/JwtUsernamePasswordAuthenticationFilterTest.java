@@ -0,0 +1,69 @@
+package com.mythesis.eshop.security;
+
+import com.mythesis.eshop.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwtUsernamePasswordAuthenticationFilterTest {
+
+    @Mock
+    private AuthenticationManager authenticationManager;
+
+    @Test
+    void canIssueTokenOnSuccessfulLogin() throws Exception {
+        when(authenticationManager.authenticate(any())).thenReturn(new UsernamePasswordAuthenticationToken(
+                "chris", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+        MockHttpServletResponse response = login();
+
+        assertThat(response.getHeader(HttpHeaders.AUTHORIZATION)).startsWith("Bearer ");
+    }
+
+    @Test
+    void wrongPasswordIsUnauthorized() throws Exception {
+        when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        MockHttpServletResponse response = login();
+
+        assertThat(response.getStatus()).isEqualTo(401);
+    }
+
+    @Test
+    void saturatedHashingPoolIsServiceUnavailable() throws Exception {
+        when(authenticationManager.authenticate(any())).thenThrow(new ServiceOverloadedException("busy"));
+
+        MockHttpServletResponse response = login();
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getContentAsString()).contains("busy");
+    }
+
+    private MockHttpServletResponse login() throws Exception {
+        JwtUsernamePasswordAuthenticationFilter underTest = new JwtUsernamePasswordAuthenticationFilter(authenticationManager);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setServletPath("/login");
+        request.setContent("{\"username\":\"chris\",\"password\":\"1234\"}".getBytes());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        underTest.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
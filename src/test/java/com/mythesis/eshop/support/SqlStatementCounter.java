@@ -0,0 +1,43 @@
+package com.mythesis.eshop.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Counts the statements Hibernate prepares, grouped by their leading keyword (select, insert, update...). */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+
+    @Override
+    public String inspect(String sql) {
+        counts.computeIfAbsent(keywordOf(sql), k -> new AtomicLong())
+                .incrementAndGet();
+        return sql;
+    }
+
+    public static void reset() {
+        counts.clear();
+    }
+
+    public static long count(String keyword) {
+        AtomicLong count = counts.get(keyword);
+        return count == null ? 0 : count.get();
+    }
+
+    public static long total() {
+        return counts.values()
+                .stream()
+                .mapToLong(AtomicLong::get)
+                .sum();
+    }
+
+    private static String keywordOf(String sql) {
+        String trimmed = sql.trim();
+        int end = trimmed.indexOf(' ');
+        return (end < 0 ? trimmed : trimmed.substring(0, end)).toLowerCase(Locale.ROOT);
+    }
+}
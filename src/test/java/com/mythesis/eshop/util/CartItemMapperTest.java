@@ -12,8 +12,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.parallel.Execution;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,8 +23,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class CartItemMapperTest {
 
-    @Mock
-    private ModelMapper modelMapper;
+    @Spy
+    private EntityDtoConverter converter = new EntityDtoConverterImpl();
     @Mock
     private CartService cartService;
     @Mock
@@ -43,8 +43,6 @@ class CartItemMapperTest {
         product.setId(2L);
         inputCartItem.setCart(cart);
         inputCartItem.setProduct(product);
-
-        when(modelMapper.map(inputCartItem, CartItemInfoDTO.class)).thenReturn(new CartItemInfoDTO());
         CartItemInfoDTO outCartItem = underTest.toCartItemInfoDto(inputCartItem);
 
         assertThat(outCartItem.getCartId()).isEqualTo(1l);
@@ -59,8 +57,6 @@ class CartItemMapperTest {
         inputCartItem.setProductId(2L);
         Cart cart = new Cart();
         Product product = new Product();
-
-        when(modelMapper.map(inputCartItem, CartItem.class)).thenReturn(new CartItem());
         when(cartService.retrieveById(1L)).thenReturn(cart);
         when(productService.retrieveById(2L)).thenReturn(product);
         CartItem outCartItem = underTest.fromCartItemEntryDto(inputCartItem);
@@ -76,8 +72,6 @@ class CartItemMapperTest {
 
         Product product = new Product();
 
-        when(modelMapper.map(inputCartItem, CartItem.class)).thenReturn(new CartItem());
-
         when(productService.retrieveById(2L)).thenReturn(product);
         CartItem outCartItem = underTest.fromCartItemEntryDto(inputCartItem);
 
@@ -91,9 +85,6 @@ class CartItemMapperTest {
         inputCartItem.setCartId(1L);
 
         Cart cart = new Cart();
-
-
-        when(modelMapper.map(inputCartItem, CartItem.class)).thenReturn(new CartItem());
         when(cartService.retrieveById(1L)).thenReturn(cart);
 
         CartItem outCartItem = underTest.fromCartItemEntryDto(inputCartItem);
@@ -108,6 +99,6 @@ class CartItemMapperTest {
         CartItem cDest = new CartItem();
         underTest.copyProperties(cSource, cDest);
 
-        verify(modelMapper).map(cSource, cDest);
+        verify(converter).copyCartItem(cSource, cDest);
     }
 }
\ No newline at end of file
@@ -13,8 +13,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,8 +24,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class CartMapperTest {
 
-    @Mock
-    private ModelMapper modelMapper;
+    @Spy
+    private EntityDtoConverter converter = new EntityDtoConverterImpl();
     @Mock
     private UserService userService;
 
@@ -38,8 +38,6 @@ class CartMapperTest {
         User user = new User();
         user.setId(1L);
         inputCart.setUser(user);
-
-        when(modelMapper.map(inputCart, CartInfoDTO.class)).thenReturn(new CartInfoDTO());
         CartInfoDTO outCart = underTest.toCartInfoDto(inputCart);
 
 
@@ -52,8 +50,6 @@ class CartMapperTest {
         User user = new User();
         user.setId(1L);
         inputCart.setUserId(1L);
-
-        when(modelMapper.map(inputCart, Cart.class)).thenReturn(new Cart());
         when(userService.retrieveById(1L)).thenReturn(user);
         Cart outCart = underTest.fromCartEntryDto(inputCart);
 
@@ -63,8 +59,6 @@ class CartMapperTest {
     @Test
     void canConvertFromOrderEntryDtoWhenNullUser(){
         CartEntryDTO inputCart = new CartEntryDTO();
-
-        when(modelMapper.map(inputCart, Cart.class)).thenReturn(new Cart());
         Cart outCart = underTest.fromCartEntryDto(inputCart);
 
         assertThat(outCart.getUser()).isEqualTo(null);
@@ -76,6 +70,6 @@ class CartMapperTest {
         Cart cDest = new Cart();
         underTest.copyProperties(cSource, cDest);
 
-        verify(modelMapper).map(cSource, cDest);
+        verify(converter).copyCart(cSource, cDest);
     }
 }
\ No newline at end of file
@@ -9,8 +9,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.verify;
@@ -18,8 +18,8 @@ import static org.mockito.Mockito.verify;
 @ExtendWith(MockitoExtension.class)
 class CategoryMapperTest {
 
-    @Mock
-    private ModelMapper modelMapper;
+    @Spy
+    private EntityDtoConverter converter = new EntityDtoConverterImpl();
 
     @InjectMocks
     private CategoryMapper underTest;
@@ -29,7 +29,7 @@ class CategoryMapperTest {
         Category category = new Category();
         underTest.toCategoryInfoDto(category);
 
-        verify(modelMapper).map(category, CategoryInfoDTO.class);
+        verify(converter).toCategoryInfoDto(category);
 
     }
 
@@ -38,7 +38,7 @@ class CategoryMapperTest {
         CategoryEntryDTO category = new CategoryEntryDTO();
         underTest.fromCategoryEntryDto(category);
 
-        verify(modelMapper).map(category, Category.class);
+        verify(converter).toCategory(category);
     }
 
     @Test
@@ -47,6 +47,6 @@ class CategoryMapperTest {
         Category cDest = new Category();
         underTest.copyProperties(cSource, cDest);
 
-        verify(modelMapper).map(cSource, cDest);
+        verify(converter).copyCategory(cSource, cDest);
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.mythesis.eshop.util;
+
+import com.mythesis.eshop.dto.ProductInfoDTO;
+import com.mythesis.eshop.dto.UserRegisterDTO;
+import com.mythesis.eshop.model.entity.Category;
+import com.mythesis.eshop.model.entity.Product;
+import com.mythesis.eshop.model.entity.User;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityDtoConverterTest {
+
+    private final EntityDtoConverter underTest = new EntityDtoConverterImpl();
+
+    @Test
+    void canConvertToProductInfoDto(){
+        Category category = new Category("Electronics");
+        Product product = new Product("phone", "smart", "s1", category, 99.0);
+        product.setId(1L);
+
+        ProductInfoDTO dto = underTest.toProductInfoDto(product);
+
+        assertThat(dto.getId()).isEqualTo(1L);
+        assertThat(dto.getName()).isEqualTo("phone");
+        assertThat(dto.getCategoryName()).isEqualTo("Electronics");
+        assertThat(dto.getPrice()).isEqualTo(99.0);
+    }
+
+    @Test
+    void canCopySkippingNullProperties(){
+        Product destination = new Product("phone", "smart", "s1", new Category("Electronics"), 99.0);
+        destination.setId(1L);
+        destination.setInStock(5);
+        Product source = new Product();
+        source.setPrice(79.0);
+
+        underTest.copyProduct(source, destination);
+
+        assertThat(destination.getId()).isEqualTo(1L);
+        assertThat(destination.getName()).isEqualTo("phone");
+        assertThat(destination.getInStock()).isEqualTo(5);
+        assertThat(destination.getPrice()).isEqualTo(79.0);
+    }
+
+    @Test
+    void canCopyReferencesWithoutAlteringReferencedEntities(){
+        Category current = new Category("Electronics");
+        current.setId(1L);
+        Category replacement = new Category("Phones");
+        replacement.setId(2L);
+        Product destination = new Product("phone", "smart", "s1", current, 99.0);
+        Product source = new Product();
+        source.setCategory(replacement);
+
+        underTest.copyProduct(source, destination);
+
+        assertThat(destination.getCategory()).isSameAs(replacement);
+        assertThat(current.getId()).isEqualTo(1L);
+        assertThat(current.getTitle()).isEqualTo("Electronics");
+    }
+
+    @Test
+    void canConvertFromUserRegisterDto(){
+        UserRegisterDTO dto = new UserRegisterDTO();
+        dto.setUsername("chris");
+        dto.setPassword("secret");
+
+        User user = underTest.toUser(dto);
+
+        assertThat(user.getUsername()).isEqualTo("chris");
+        assertThat(user.getPassword()).isEqualTo("secret");
+        assertThat(user.getId()).isNull();
+    }
+}
@@ -0,0 +1,136 @@
+package com.mythesis.eshop.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+class ExpiringCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void canGetCachedValueAndCountHits() {
+        ExpiringCache<Long, String> underTest = new ExpiringCache<>("test", 10, Duration.ofMinutes(1), registry);
+
+        assertThat(underTest.get(1L)).isNull();
+        underTest.put(1L, "one");
+
+        assertThat(underTest.get(1L)).isEqualTo("one");
+        assertThat(underTest.hitCount()).isEqualTo(1L);
+        assertThat(underTest.missCount()).isEqualTo(1L);
+        assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void canEvictLeastRecentlyUsedWhenFull() {
+        ExpiringCache<Long, String> underTest = new ExpiringCache<>("test", 2, Duration.ofMinutes(1), registry);
+
+        underTest.put(1L, "one");
+        underTest.put(2L, "two");
+        underTest.get(1L);
+        underTest.put(3L, "three");
+
+        assertThat(underTest.size()).isEqualTo(2);
+        assertThat(underTest.get(2L)).isNull();
+        assertThat(underTest.get(1L)).isEqualTo("one");
+        assertThat(underTest.evictionCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void canExpireEntries() throws InterruptedException {
+        ExpiringCache<Long, String> underTest = new ExpiringCache<>("test", 10, Duration.ofMillis(20), registry);
+
+        underTest.put(1L, "one");
+        Thread.sleep(40);
+
+        assertThat(underTest.get(1L)).isNull();
+    }
+
+    @Test
+    void canNotOutliveExplicitDeadline() {
+        ExpiringCache<Long, String> underTest = new ExpiringCache<>("test", 10, Duration.ofMinutes(1), registry);
+
+        underTest.putUntil(1L, "one", System.nanoTime() - 1);
+
+        assertThat(underTest.get(1L)).isNull();
+    }
+
+    @Test
+    void canInvalidate() {
+        ExpiringCache<Long, String> underTest = new ExpiringCache<>("test", 10, Duration.ofMinutes(1), registry);
+
+        underTest.put(1L, "one");
+        underTest.put(2L, "two");
+        underTest.invalidate(1L);
+
+        assertThat(underTest.get(1L)).isNull();
+        assertThat(underTest.get(2L)).isEqualTo("two");
+
+        underTest.invalidateAll();
+        assertThat(underTest.size()).isEqualTo(0);
+    }
+
+    @Test
+    void canNotPutValueLoadedBeforeInvalidation() {
+        ExpiringCache<Long, String> underTest = new ExpiringCache<>("test", 10, Duration.ofMinutes(1), registry);
+
+        long generation = underTest.generation();
+        underTest.invalidate(1L);
+
+        assertThat(underTest.putIfGeneration(1L, "stale", generation)).isFalse();
+        assertThat(underTest.get(1L)).isNull();
+    }
+
+    @Test
+    void canGetWhileWriterHoldsMonitor() throws Exception {
+        ExpiringCache<Long, String> underTest = new ExpiringCache<>("test", 10, Duration.ofMinutes(1), registry);
+        underTest.put(1L, "one");
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            synchronized (underTest) {
+                held.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        held.await();
+        try {
+            String value = CompletableFuture.supplyAsync(() -> underTest.get(1L)).get(5, TimeUnit.SECONDS);
+            assertThat(value).isEqualTo("one");
+        } finally {
+            release.countDown();
+            writer.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void canStayBoundedUnderConcurrentPuts() throws Exception {
+        ExpiringCache<Long, String> underTest = new ExpiringCache<>("test", 64, Duration.ofMinutes(1), registry);
+
+        CompletableFuture<?>[] writers = new CompletableFuture<?>[4];
+        for (int w = 0; w < writers.length; w++) {
+            long offset = w * 10_000L;
+            writers[w] = CompletableFuture.runAsync(() -> {
+                for (long i = 0; i < 5_000; i++) {
+                    underTest.put(offset + i, "value");
+                    underTest.get(offset + i / 2);
+                }
+            });
+        }
+        CompletableFuture.allOf(writers).get(30, TimeUnit.SECONDS);
+        underTest.put(-1L, "last");
+
+        assertThat(underTest.size()).isLessThanOrEqualTo(64);
+    }
+}
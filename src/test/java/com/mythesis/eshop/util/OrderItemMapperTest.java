@@ -11,8 +11,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -22,8 +22,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class OrderItemMapperTest {
 
-    @Mock
-    private ModelMapper modelMapper;
+    @Spy
+    private EntityDtoConverter converter = new EntityDtoConverterImpl();
     @Mock
     private ProductService productService;
     @Mock
@@ -41,8 +41,6 @@ class OrderItemMapperTest {
         product.setId(2L);
         inputOrderItem.setOrder(order);
         inputOrderItem.setProduct(product);
-
-        when(modelMapper.map(inputOrderItem, OrderItemInfoDTO.class)).thenReturn(new OrderItemInfoDTO());
         OrderItemInfoDTO outOrderItem = underTest.toOrderItemInfoDto(inputOrderItem);
 
         assertThat(outOrderItem.getOrderId()).isEqualTo(1L);
@@ -56,8 +54,6 @@ class OrderItemMapperTest {
         inputOrderItem.setProductId(2L);
         Order order = new Order();
         Product product = new Product();
-
-        when(modelMapper.map(inputOrderItem, OrderItem.class)).thenReturn(new OrderItem());
         when(orderService.retrieveById(1L)).thenReturn(order);
         when(productService.retrieveById(2L)).thenReturn(product);
         OrderItem outOrderItem = underTest.fromOrderItemEntryDto(inputOrderItem);
@@ -73,8 +69,6 @@ class OrderItemMapperTest {
 
         Product product = new Product();
 
-        when(modelMapper.map(inputOrderItem, OrderItem.class)).thenReturn(new OrderItem());
-
         when(productService.retrieveById(2L)).thenReturn(product);
         OrderItem outOrderItem = underTest.fromOrderItemEntryDto(inputOrderItem);
 
@@ -88,9 +82,6 @@ class OrderItemMapperTest {
         inputOrderItem.setOrderId(1L);
 
         Order order = new Order();
-
-
-        when(modelMapper.map(inputOrderItem, OrderItem.class)).thenReturn(new OrderItem());
         when(orderService.retrieveById(1L)).thenReturn(order);
 
         OrderItem outOrderItem = underTest.fromOrderItemEntryDto(inputOrderItem);
@@ -105,6 +96,6 @@ class OrderItemMapperTest {
         OrderItem oDest = new OrderItem();
         underTest.copyProperties(oSource, oDest);
 
-        verify(modelMapper).map(oSource, oDest);
+        verify(converter).copyOrderItem(oSource, oDest);
     }
 }
\ No newline at end of file
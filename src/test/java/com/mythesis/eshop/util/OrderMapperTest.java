@@ -13,8 +13,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,8 +24,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class OrderMapperTest {
 
-    @Mock
-    private ModelMapper modelMapper;
+    @Spy
+    private EntityDtoConverter converter = new EntityDtoConverterImpl();
     @Mock
     private UserService userService;
 
@@ -38,8 +38,6 @@ class OrderMapperTest {
         User user = new User();
         user.setId(1L);
         inputOrder.setUser(user);
-
-        when(modelMapper.map(inputOrder, OrderInfoDTO.class)).thenReturn(new OrderInfoDTO());
         OrderInfoDTO outOrder = underTest.toOrderInfoDto(inputOrder);
 
 
@@ -52,8 +50,6 @@ class OrderMapperTest {
         User user = new User();
         user.setId(1L);
         inputOrder.setUserId(1L);
-
-        when(modelMapper.map(inputOrder, Order.class)).thenReturn(new Order());
         when(userService.retrieveById(1L)).thenReturn(user);
         Order outOrder = underTest.fromOrderEntryDto(inputOrder);
 
@@ -63,8 +59,6 @@ class OrderMapperTest {
     @Test
     void canConvertFromOrderEntryDtoWhenNullUser(){
         OrderEntryDTO inputOrder = new OrderEntryDTO();
-
-        when(modelMapper.map(inputOrder, Order.class)).thenReturn(new Order());
         Order outOrder = underTest.fromOrderEntryDto(inputOrder);
 
         assertThat(outOrder.getUser()).isEqualTo(null);
@@ -76,6 +70,6 @@ class OrderMapperTest {
         Order oDest = new Order();
         underTest.copyProperties(oSource, oDest);
 
-        verify(modelMapper).map(oSource, oDest);
+        verify(converter).copyOrder(oSource, oDest);
     }
 }
\ No newline at end of file
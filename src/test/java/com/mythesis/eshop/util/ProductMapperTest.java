@@ -10,8 +10,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.in;
@@ -22,8 +22,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class ProductMapperTest {
 
-    @Mock
-    private ModelMapper modelMapper;
+    @Spy
+    private EntityDtoConverter converter = new EntityDtoConverterImpl();
 
     @Mock
     private CategoryService categoryService;
@@ -35,8 +35,6 @@ class ProductMapperTest {
     void canConvertToProductInfoDto() {
         Product inputProduct = new Product();
         inputProduct.setCategory(new Category("testCategory"));
-
-        when(modelMapper.map(inputProduct, ProductInfoDTO.class)).thenReturn(new ProductInfoDTO());
         ProductInfoDTO outProduct = underTest.toProductInfoDto(inputProduct);
 
 
@@ -47,8 +45,6 @@ class ProductMapperTest {
     void canConvertFromProductEntryDto() {
         ProductEntryDTO inputProduct = new ProductEntryDTO();
         inputProduct.setCategoryId(1L);
-
-        when(modelMapper.map(inputProduct, Product.class)).thenReturn(new Product());
         when(categoryService.retrieveById(1L)).thenReturn(new Category("testCategory"));
         Product outProduct = underTest.fromProductEntryDto(inputProduct);
 
@@ -59,8 +55,6 @@ class ProductMapperTest {
     void canConvertFromProductEntryWhenNullCategory() {
         ProductEntryDTO inputProduct = new ProductEntryDTO();
         inputProduct.setCategoryId(null);
-
-        when(modelMapper.map(inputProduct, Product.class)).thenReturn(new Product());
         Product outProduct = underTest.fromProductEntryDto(inputProduct);
 
         assertThat(outProduct.getCategory()).isEqualTo(null);
@@ -74,6 +68,6 @@ class ProductMapperTest {
         Product pDest = new Product();
         underTest.copyProperties(pSource, pDest);
 
-        verify(modelMapper).map(pSource, pDest);
+        verify(converter).copyProduct(pSource, pDest);
     }
 }
\ No newline at end of file
@@ -7,8 +7,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.verify;
@@ -16,8 +16,8 @@ import static org.mockito.Mockito.verify;
 @ExtendWith(MockitoExtension.class)
 class UserMapperTest {
 
-    @Mock
-    private ModelMapper modelMapper;
+    @Spy
+    private EntityDtoConverter converter = new EntityDtoConverterImpl();
 
     @InjectMocks
     private UserMapper underTest;
@@ -27,7 +27,7 @@ class UserMapperTest {
         User user = new User();
         underTest.toUserInfoDto(user);
 
-        verify(modelMapper).map(user, UserInfoDTO.class);
+        verify(converter).toUserInfoDto(user);
 
     }
 
@@ -36,7 +36,7 @@ class UserMapperTest {
         UserRegisterDTO user = new UserRegisterDTO();
         underTest.fromUserRegDto(user);
 
-        verify(modelMapper).map(user, User.class);
+        verify(converter).toUser(user);
     }
 
     @Test
@@ -45,7 +45,7 @@ class UserMapperTest {
         User uDest = new User();
         underTest.copyProperties(uSource, uDest);
 
-        verify(modelMapper).map(uSource, uDest);
+        verify(converter).copyUser(uSource, uDest);
 
     }
 }
\ No newline at end of file